@@ -0,0 +1,150 @@
+import client.AccountService;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bulk Payments: send every transfer in a payment file.
+ *
+ * Usage:  ./gradlew run -PmainClass=BulkTransferApp --args="<file.csv> [max_in_flight] [--parse-only]"
+ * Reads:  entity_id from state.json, for rows that leave account_id empty
+ * Writes: <file.csv>.journal, a TransferJournal of every transfer sent
+ *
+ * The file format is described in PaymentFileReader. Rows are parsed on a
+ * background thread and sent through PayoutEngine; invalid rows are
+ * reported and skipped. Rows without a client_tx_id get one derived from
+ * the file's absolute, normalized path and the line number, so re-running
+ * the same file reuses it; give rows a client_tx_id column where the file
+ * may be moved or edited between runs.
+ * Transfers left unfinished by a crashed run are re-sent before the file,
+ * and rows whose clientTxId the journal already holds, pending or settled,
+ * are skipped, so a re-run only sends what no earlier run has.
+ * With --parse-only nothing is sent and only the parse rate is reported.
+ */
+public class BulkTransferApp {
+    public static void main(String[] args) throws Exception {
+        System.out.println();
+        System.out.println("══════════════════════════════════════════");
+        System.out.println("  Bulk Payment Transfer");
+        System.out.println("══════════════════════════════════════════");
+        System.out.println();
+
+        if (args.length < 1) {
+            System.err.println("  ✗ Usage: BulkTransferApp <file.csv> [max_in_flight] [--parse-only]");
+            return;
+        }
+        // Normalized, so payments.csv and ./payments.csv derive the same clientTxIds.
+        Path file = Path.of(args[0]).toAbsolutePath().normalize();
+        int maxInFlight = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : 256;
+        boolean parseOnly = args[args.length - 1].equals("--parse-only");
+
+        try (PaymentFileReader reader = new PaymentFileReader(file, PaymentFileReader.Format.csv());
+             PaymentFileReader.Feed feed = reader.feed(4 * maxInFlight)) {
+            if (parseOnly) {
+                long invalid = 0;
+                while (feed.hasNext()) {
+                    PaymentFileReader.Row row = feed.next();
+                    if (row.error() != null) {
+                        invalid++;
+                    }
+                    feed.recycle(row);
+                }
+                System.out.println("  ✓ Parsed: " + feed.stats());
+                System.out.println("  ✓ Invalid rows: " + invalid);
+                System.out.println();
+                return;
+            }
+
+            try (VertexClient client = new VertexClient();
+                 TransferJournal journal = TransferJournal.open(Path.of(file + ".journal"))) {
+                AccountService accountService = client.accountService();
+                PayoutEngine engine = new PayoutEngine(accountService, maxInFlight, Duration.ofSeconds(30), journal);
+                Consumer<PayoutEngine.Result> reportFailures = result -> {
+                    if (!result.ok()) {
+                        System.err.println("  ✗ " + result.instruction().clientTxId() + ": " + result.error().getMessage());
+                    }
+                };
+
+                System.out.println("  ✓ Journal: " + journal.recovery());
+                if (!journal.pending().isEmpty()) {
+                    System.out.println("  → Re-sending " + journal.pending().size() + " unfinished transfers...");
+                    System.out.println("  ✓ Re-sent: " + engine.run(journal.pending().iterator(), reportFailures));
+                }
+
+                String fallbackAccountId = defaultAccount(accountService);
+                if (fallbackAccountId != null) {
+                    System.out.println("  ✓ Default account: " + fallbackAccountId);
+                }
+                System.out.println("  → Sending " + file + " (" + maxInFlight + " in flight)...");
+                System.out.println();
+
+                AtomicLong skipped = new AtomicLong();
+                Iterator<PayoutEngine.Instruction> instructions = new Iterator<>() {
+                    private PayoutEngine.Instruction ready;
+
+                    public boolean hasNext() {
+                        while (ready == null && feed.hasNext()) {
+                            PaymentFileReader.Row row = feed.next();
+                            if (row.error() != null) {
+                                System.err.println("  ✗ Line " + row.lineNumber() + ": " + row.error());
+                            } else if (row.isBlank(PaymentFileReader.Column.ACCOUNT_ID) && fallbackAccountId == null) {
+                                System.err.println("  ✗ Line " + row.lineNumber() + ": no account_id and no default account");
+                            } else {
+                                String clientTxId = UUID.nameUUIDFromBytes(
+                                    (file + ":" + row.lineNumber()).getBytes(StandardCharsets.UTF_8)).toString();
+                                AccountService.TransferEFTRTCRequest request = row.toRequest(fallbackAccountId, clientTxId);
+                                if (journal.known(request.clientTxId())) {
+                                    skipped.incrementAndGet();
+                                } else {
+                                    ready = new PayoutEngine.Eft(request);
+                                }
+                            }
+                            feed.recycle(row);
+                        }
+                        return ready != null;
+                    }
+
+                    public PayoutEngine.Instruction next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        PayoutEngine.Instruction instruction = ready;
+                        ready = null;
+                        return instruction;
+                    }
+                };
+
+                PayoutEngine.Summary summary = engine.run(instructions, reportFailures);
+
+                System.out.println();
+                System.out.println("  ✓ Sent:   " + summary);
+                if (skipped.get() > 0) {
+                    System.out.println("  ✓ Skipped " + skipped.get() + " rows already in the journal");
+                }
+                System.out.println("  ✓ Parsed: " + feed.stats());
+                System.out.println();
+            }
+        }
+    }
+
+    /** First account of the state.json entity, or null if there is none. */
+    private static String defaultAccount(AccountService accountService) throws Exception {
+        String entityId = State.load().get("entity_id");
+        if (entityId == null) {
+            return null;
+        }
+        AccountService.GetAccountsByEntityResponse accounts = accountService.get_by_entity(
+            new AccountService.GetAccountsByEntityRequest(entityId)
+        ).get(30, TimeUnit.SECONDS);
+        if (accounts.accounts() == null || accounts.accounts().isEmpty()) {
+            return null;
+        }
+        return accounts.accounts().get(0).account_id();
+    }
+}
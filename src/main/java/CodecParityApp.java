@@ -0,0 +1,38 @@
+import client.CodecParity;
+import client.Codecs;
+import java.util.List;
+
+/**
+ * Diagnostics: check the streaming response decoders against Jackson.
+ *
+ * Usage:  ./gradlew run -PmainClass=CodecParityApp
+ *
+ * Runs client.CodecParity over a registry with and without canonical
+ * strings and prints every disagreement. Needs no server. Run it after
+ * changing a response record or its decoder in client.RecordCodecs;
+ * exits with status 1 if the decoders disagree.
+ */
+public class CodecParityApp {
+    public static void main(String[] args) {
+        System.out.println();
+        System.out.println("══════════════════════════════════════════");
+        System.out.println("  Streaming Decoder Parity Check");
+        System.out.println("══════════════════════════════════════════");
+        System.out.println();
+
+        int problems = 0;
+        for (boolean canonicalStrings : new boolean[] {false, true}) {
+            List<String> found = CodecParity.check(new Codecs(canonicalStrings));
+            for (String problem : found) {
+                System.err.println("  ✗ " + problem);
+            }
+            System.out.printf("  %s canonical strings %s: %d problems%n",
+                found.isEmpty() ? "✓" : "✗", canonicalStrings ? "on" : "off", found.size());
+            problems += found.size();
+        }
+        System.out.println();
+        if (problems > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import client.AccountService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit: recompute every tx_sha in the accounts' full histories.
+ *
+ * Usage:  ./gradlew run -PmainClass=HashChainApp --args="[account_id ...]"
+ * Reads:  entity_id from state.json, when no account ids are given
+ *
+ * Lists each account's transactions, verifies them with HashChainVerifier
+ * and prints the mismatches. It then verifies the same histories again
+ * with 1, 2, 4, ... pool threads up to the number of cores and prints the
+ * rows per second for each, to show how the check scales.
+ *
+ * Uses HashChainVerifier.Layout.JOINED, a stand-in for the server's own
+ * tx_sha layout, which this SDK does not specify; swap in the real layout
+ * before relying on the mismatches.
+ */
+public class HashChainApp {
+    private static final int MIN_ROWS_PER_RUN = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println();
+        System.out.println("══════════════════════════════════════════");
+        System.out.println("  tx_sha Hash Chain Audit");
+        System.out.println("══════════════════════════════════════════");
+        System.out.println();
+
+        HashChainVerifier verifier = new HashChainVerifier("SHA-256", HashChainVerifier.Layout.JOINED);
+        Map<String, List<AccountService.Transaction>> histories = new LinkedHashMap<>();
+        try (VertexClient client = new VertexClient()) {
+            AccountService accountService = client.accountService();
+            List<String> accountIds = args.length > 0 ? List.of(args) : entityAccounts(accountService);
+            if (accountIds.isEmpty()) {
+                System.err.println("  ✗ No account ids given and no accounts for entity_id in state.json");
+                return;
+            }
+            List<CompletableFuture<AccountService.GetTransactionsResponse>> lists = new ArrayList<>();
+            for (String accountId : accountIds) {
+                lists.add(accountService.list(new AccountService.GetTransactionsRequest(accountId, null)));
+            }
+            for (int i = 0; i < lists.size(); i++) {
+                try {
+                    List<AccountService.Transaction> transactions = lists.get(i).get(60, TimeUnit.SECONDS).transactions();
+                    histories.put(accountIds.get(i), transactions == null ? List.of() : transactions);
+                } catch (Exception e) {
+                    System.err.println("  ✗ " + accountIds.get(i) + ": " + e.getMessage());
+                }
+            }
+        }
+
+        HashChainVerifier.Report report = verifier.verify(histories);
+        for (HashChainVerifier.Mismatch mismatch : report.mismatches().subList(0, Math.min(20, report.mismatches().size()))) {
+            System.out.println("  ✗ " + mismatch.accountId() + " #" + mismatch.position()
+                + "  " + mismatch.transaction().tx_id()
+                + "  tx_sha " + mismatch.transaction().tx_sha() + " ≠ " + mismatch.computed());
+        }
+        System.out.printf("  %s %d rows in %d accounts, %d mismatches%n",
+            report.mismatches().isEmpty() ? "✓" : "✗", report.checked(), histories.size(), report.mismatches().size());
+        if (report.checked() == 0) {
+            return;
+        }
+
+        // Repeat small histories, as if there were more accounts, so each timed
+        // run hashes enough rows to measure and has chunks for every thread.
+        int repeats = (int) Math.max(1, MIN_ROWS_PER_RUN / report.checked());
+        Map<String, List<AccountService.Transaction>> workload = new LinkedHashMap<>();
+        for (int r = 0; r < repeats; r++) {
+            for (Map.Entry<String, List<AccountService.Transaction>> entry : histories.entrySet()) {
+                workload.put(entry.getKey() + "#" + r, entry.getValue());
+            }
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println();
+        System.out.println("  Throughput (" + repeats * report.checked() + " rows per run, " + cores + " cores):");
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                verifier.verify(workload, pool); // warm-up
+                long started = System.nanoTime();
+                verifier.verify(workload, pool);
+                double rowsPerSecond = repeats * report.checked() / ((System.nanoTime() - started) / 1e9);
+                single = threads == 1 ? rowsPerSecond : single;
+                System.out.printf("    %3d threads  %,12.0f rows/s  %.2fx%n", threads, rowsPerSecond, rowsPerSecond / single);
+            } finally {
+                pool.shutdown();
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+        System.out.println();
+    }
+
+    private static List<String> entityAccounts(AccountService accountService) throws Exception {
+        String entityId = State.load().get("entity_id");
+        if (entityId == null) {
+            return List.of();
+        }
+        AccountService.GetAccountsByEntityResponse accounts = accountService.get_by_entity(
+            new AccountService.GetAccountsByEntityRequest(entityId)
+        ).get(30, TimeUnit.SECONDS);
+        if (accounts.accounts() == null) {
+            return List.of();
+        }
+        return accounts.accounts().stream().map(AccountService.AccountSummary::account_id).toList();
+    }
+}
@@ -0,0 +1,285 @@
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import client.AccountService;
+
+/**
+ * Recomputes the tx_sha of every transaction in full account histories and
+ * reports the ones that do not match.
+ *
+ * Which bytes a tx_sha covers is up to a Layout: it feeds them, for one
+ * transaction and the one before it in the account's history, into a
+ * Hasher. The server's own layout is not specified in this SDK, so
+ * Layout.JOINED is only a stand-in; plug in the real one.
+ *
+ * - each row is checked against the tx_sha its predecessor claims, so rows
+ *   are independent: histories are cut into chunks of CHUNK rows and the
+ *   chunks of all accounts are hashed on a ForkJoinPool
+ * - each pool thread keeps its own MessageDigest and byte buffer; fields
+ *   are UTF-8 encoded into that buffer and the digest is compared with the
+ *   tx_sha hex in place, so a matching row allocates nothing
+ * - a mismatch is reported with its account, position in that account's
+ *   list and the tx_sha that was computed; a row whose fields were altered
+ *   shows up at its own position, and one whose tx_sha was altered also at
+ *   the row after it, through the chain
+ * - null rows are skipped: the row after one is checked against the last
+ *   non-null row before it
+ */
+public class HashChainVerifier {
+    private static final int CHUNK = 2048;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The bytes a transaction's tx_sha is computed over. */
+    @FunctionalInterface
+    public interface Layout {
+        /** previous is the transaction before tx in its account's history, or null. */
+        void write(AccountService.Transaction tx, AccountService.Transaction previous, Hasher out);
+
+        /**
+         * Stand-in layout: the previous tx_sha, then every other field in
+         * record order, each followed by '|'; null fields are empty.
+         */
+        Layout JOINED = (tx, previous, out) -> {
+            out.put(previous == null ? null : previous.tx_sha()).put('|');
+            out.put(tx.tx_id()).put('|');
+            out.put(tx.parent_tx_id()).put('|');
+            out.put(tx.date()).put('|');
+            out.put(tx.amount()).put('|');
+            out.put(tx.ref()).put('|');
+            out.put(tx.status()).put('|');
+            out.put(tx.user_id()).put('|');
+            out.put(tx.added_by()).put('|');
+            out.put(tx.tx_type()).put('|');
+            out.put(tx.tx_payment_type()).put('|');
+            out.put(tx.fee()).put('|');
+            out.put(tx.recipient_name()).put('|');
+            out.put(tx.credit()).put('|');
+            out.put(tx.debit()).put('|');
+            out.put(tx.running_balance()).put('|');
+        };
+    }
+
+    /** A row whose tx_sha is not the one computed for it. */
+    public record Mismatch(
+        String accountId, int position, AccountService.Transaction transaction, String computed) {}
+
+    /** Rows checked, and the mismatches ordered by account and position. */
+    public record Report(long checked, List<Mismatch> mismatches) {}
+
+    private final String algorithm;
+    private final Layout layout;
+    private final ThreadLocal<Hasher> hashers;
+
+    public HashChainVerifier(String algorithm, Layout layout) throws NoSuchAlgorithmException {
+        MessageDigest.getInstance(algorithm); // fail here rather than on a pool thread
+        this.algorithm = algorithm;
+        this.layout = layout;
+        this.hashers = ThreadLocal.withInitial(() -> new Hasher(digest(this.algorithm)));
+    }
+
+    /** Verifies each account's history, in the order listed, on the common pool. */
+    public Report verify(Map<String, List<AccountService.Transaction>> histories) {
+        return verify(histories, ForkJoinPool.commonPool());
+    }
+
+    public Report verify(Map<String, List<AccountService.Transaction>> histories, ForkJoinPool pool) {
+        List<Chunk> chunks = new ArrayList<>();
+        long checked = 0;
+        for (Map.Entry<String, List<AccountService.Transaction>> entry : histories.entrySet()) {
+            List<AccountService.Transaction> history = entry.getValue();
+            if (history == null) {
+                continue;
+            }
+            for (int from = 0; from < history.size(); from += CHUNK) {
+                chunks.add(new Chunk(entry.getKey(), history, from, Math.min(from + CHUNK, history.size())));
+            }
+            checked += history.size();
+        }
+        List<Mismatch> mismatches = chunks.isEmpty()
+            ? new ArrayList<>()
+            : pool.invoke(new Split(chunks, 0, chunks.size()));
+        mismatches.sort(Comparator.comparing(Mismatch::accountId).thenComparingInt(Mismatch::position));
+        return new Report(checked, mismatches);
+    }
+
+    private record Chunk(String accountId, List<AccountService.Transaction> history, int from, int to) {}
+
+    /** Halves the chunk list until one chunk is left, then hashes it. */
+    private final class Split extends RecursiveTask<List<Mismatch>> {
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        private Split(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Mismatch> compute() {
+            if (to - from == 1) {
+                return check(chunks.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            Split left = new Split(chunks, from, mid);
+            left.fork();
+            List<Mismatch> right = new Split(chunks, mid, to).compute();
+            List<Mismatch> mismatches = left.join();
+            mismatches.addAll(right);
+            return mismatches;
+        }
+    }
+
+    private List<Mismatch> check(Chunk chunk) {
+        List<Mismatch> mismatches = new ArrayList<>();
+        Hasher hasher = hashers.get();
+        List<AccountService.Transaction> history = chunk.history();
+        AccountService.Transaction previous = null;
+        for (int i = chunk.from() - 1; i >= 0 && previous == null; i--) {
+            previous = history.get(i);
+        }
+        for (int i = chunk.from(); i < chunk.to(); i++) {
+            AccountService.Transaction tx = history.get(i);
+            if (tx == null) {
+                continue; // the next row chains to the last one there is
+            }
+            try {
+                layout.write(tx, previous, hasher);
+                byte[] digest = hasher.finish();
+                if (!matches(digest, tx.tx_sha())) {
+                    mismatches.add(new Mismatch(chunk.accountId(), i, tx, hex(digest)));
+                }
+            } finally {
+                hasher.reset(); // a layout that threw must not leave bytes for the next row
+            }
+            previous = tx;
+        }
+        return mismatches;
+    }
+
+    /** Whether sha is the hex form of digest, in either case. */
+    private static boolean matches(byte[] digest, String sha) {
+        if (sha == null || sha.length() != digest.length * 2) {
+            return false;
+        }
+        for (int i = 0; i < digest.length; i++) {
+            int hi = Character.digit(sha.charAt(2 * i), 16);
+            int lo = Character.digit(sha.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0 || (hi << 4 | lo) != (digest[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hex(byte[] digest) {
+        char[] out = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            out[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+            out[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** One thread's digest, fed UTF-8 bytes through a reused buffer. */
+    public static final class Hasher {
+        private final MessageDigest digest;
+        private final byte[] digestOut;
+        private byte[] buf = new byte[1024];
+        private int len;
+
+        private Hasher(MessageDigest digest) {
+            this.digest = digest;
+            this.digestOut = new byte[digest.getDigestLength()];
+        }
+
+        /** Appends the UTF-8 bytes of s; null appends nothing. */
+        public Hasher put(String s) {
+            if (s != null) {
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    if (c < 0x80) {
+                        byteOut(c);
+                    } else if (c < 0x800) {
+                        byteOut(0xC0 | c >> 6);
+                        byteOut(0x80 | c & 0x3F);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        byteOut(0xF0 | cp >> 18);
+                        byteOut(0x80 | cp >> 12 & 0x3F);
+                        byteOut(0x80 | cp >> 6 & 0x3F);
+                        byteOut(0x80 | cp & 0x3F);
+                    } else if (Character.isSurrogate(c)) {
+                        byteOut('?'); // unpaired, as String.getBytes(UTF_8) writes it
+                    } else {
+                        byteOut(0xE0 | c >> 12);
+                        byteOut(0x80 | c >> 6 & 0x3F);
+                        byteOut(0x80 | c & 0x3F);
+                    }
+                }
+            }
+            return this;
+        }
+
+        /** Appends one character, such as a separator. */
+        public Hasher put(char c) {
+            if (c < 0x80) {
+                byteOut(c);
+                return this;
+            }
+            return put(String.valueOf(c));
+        }
+
+        public Hasher put(byte[] bytes) {
+            flush();
+            digest.update(bytes);
+            return this;
+        }
+
+        private void byteOut(int b) {
+            if (len == buf.length) {
+                flush();
+            }
+            buf[len++] = (byte) b;
+        }
+
+        private void flush() {
+            digest.update(buf, 0, len);
+            len = 0;
+        }
+
+        /** Drops anything put since the last finish(). */
+        private void reset() {
+            len = 0;
+            digest.reset();
+        }
+
+        /** The digest of everything put since the last call; the array is reused. */
+        private byte[] finish() {
+            flush();
+            try {
+                digest.digest(digestOut, 0, digestOut.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return digestOut;
+        }
+    }
+}
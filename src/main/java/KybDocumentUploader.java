@@ -1,22 +1,30 @@
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 
 import io.nats.client.Connection;
 import io.nats.client.JetStreamApiException;
-import io.nats.client.JetStreamOptions;
 import io.nats.client.ObjectStore;
-import io.nats.client.ObjectStoreManagement;
-import io.nats.client.ObjectStoreOptions;
 import io.nats.client.api.ObjectMeta;
 import io.nats.client.api.ObjectStoreConfiguration;
 import io.nats.client.api.StorageType;
@@ -30,13 +38,22 @@ import io.nats.client.impl.Headers;
  *
  * Like KycDocumentUploader, this explicitly creates the Object Store bucket
  * because the Java NATS SDK does not auto-create buckets.
+ *
+ * Directors usually get the same source file for a document type (each
+ * still needs their own object). A file used for more than one key is
+ * memory-mapped once and every put streams from that mapping, instead of
+ * reopening and re-reading it from disk per key.
  */
 public class KybDocumentUploader {
-    private final Connection natsConnection;
+    private final ObjectStoreCache objectStores;
     private final Logger log;
 
     public KybDocumentUploader(Connection natsConnection, Logger log) {
-        this.natsConnection = natsConnection;
+        this(new ObjectStoreCache(natsConnection), log);
+    }
+
+    public KybDocumentUploader(ObjectStoreCache objectStores, Logger log) {
+        this.objectStores = objectStores;
         this.log = log;
     }
 
@@ -59,88 +76,207 @@ public class KybDocumentUploader {
             String entityId,
             Map<String, File> businessDocs,
             Map<String, Map<String, File>> directorDocs) throws IOException {
+        return uploadDocuments(entityId, businessDocs, directorDocs, 1);
+    }
+
+    /**
+     * Same as {@link #uploadDocuments(String, Map, Map)}, with up to
+     * {@code concurrency} documents in flight at once.
+     *
+     * Keys and the order of the returned {@link UploadResult} are the same
+     * as for a serial upload. If any upload fails, the ones still in flight
+     * are cancelled and the first failure is thrown; documents that already
+     * finished stay in the bucket.
+     */
+    public UploadResult uploadDocuments(
+            String entityId,
+            Map<String, File> businessDocs,
+            Map<String, Map<String, File>> directorDocs,
+            int concurrency) throws IOException {
 
         log.info("Uploading KYB documents for entity {}", entityId);
 
         String bucketName = "kyb_dropbox_" + entityId;
         long timestamp = Instant.now().getEpochSecond();
 
-        JetStreamOptions jso = JetStreamOptions.builder()
-            .requestTimeout(Duration.ofSeconds(10))
-            .build();
-
         ObjectStore objectStore;
         try {
-            objectStore = ensureObjectStore(bucketName, jso, entityId);
+            objectStore = objectStores.get(bucketName, () -> bucketConfig(bucketName, entityId));
             log.info("KYB bucket ready: {}", objectStore.getBucketName());
         } catch (JetStreamApiException e) {
             log.error("KYB bucket setup failed: {}", e.getMessage());
             throw new IOException("Failed to create/find KYB Object Store bucket", e);
         }
 
-        // Upload business documents
+        // Plan every upload up front so keys don't depend on completion order
+        List<Upload> uploads = new ArrayList<>();
+
+        // Business documents
         List<String> businessKeys = new ArrayList<>();
         for (var entry : businessDocs.entrySet()) {
             String key = entry.getKey() + "_" + timestamp;
-            uploadFile(objectStore, key, entry.getValue());
+            uploads.add(new Upload(key, entry.getValue(), null));
             businessKeys.add(key);
         }
 
-        // Upload per-director documents
+        // Per-director documents
         Map<String, List<String>> directorKeys = new LinkedHashMap<>();
         for (var dirEntry : directorDocs.entrySet()) {
             String directorId = dirEntry.getKey();
             List<String> keys = new ArrayList<>();
             for (var docEntry : dirEntry.getValue().entrySet()) {
                 String key = docEntry.getKey() + "_" + directorId + "_" + timestamp;
-                uploadFile(objectStore, key, docEntry.getValue());
+                uploads.add(new Upload(key, docEntry.getValue(), null));
                 keys.add(key);
             }
             directorKeys.put(directorId, keys);
         }
 
+        uploads = shareRepeatedFiles(uploads);
+
+        if (concurrency <= 1 || uploads.size() <= 1) {
+            for (Upload upload : uploads) {
+                uploadFile(objectStore, upload);
+            }
+        } else {
+            uploadParallel(objectStore, uploads, concurrency);
+        }
+
         return new UploadResult(bucketName, businessKeys, directorKeys);
     }
 
-    private void uploadFile(ObjectStore objectStore, String key, File file) throws IOException {
+    /** One object to put; {@code content} is set when the file is shared with other keys. */
+    private record Upload(String key, File file, ByteBuffer content) {}
+
+    /** Maps each file that backs more than one key once, and points those uploads at it. */
+    private List<Upload> shareRepeatedFiles(List<Upload> uploads) throws IOException {
+        Map<File, Integer> uses = new HashMap<>();
+        for (Upload upload : uploads) {
+            uses.merge(upload.file().getAbsoluteFile(), 1, Integer::sum);
+        }
+
+        Map<File, ByteBuffer> mapped = new HashMap<>();
+        List<Upload> shared = new ArrayList<>(uploads.size());
+        for (Upload upload : uploads) {
+            File file = upload.file().getAbsoluteFile();
+            if (uses.get(file) < 2) {
+                shared.add(upload);
+                continue;
+            }
+            ByteBuffer content = mapped.get(file);
+            if (content == null) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                mapped.put(file, content);
+                log.info("Reading {} once for {} keys", upload.file().getName(), uses.get(file));
+            }
+            shared.add(new Upload(upload.key(), upload.file(), content));
+        }
+        return shared;
+    }
+
+    private void uploadParallel(ObjectStore objectStore, List<Upload> uploads, int concurrency)
+            throws IOException {
+        int threads = Math.min(concurrency, uploads.size());
+        log.info("Uploading {} KYB documents, {} at a time", uploads.size(), threads);
+
+        // A fixed pool of virtual threads caps how many puts are in flight.
+        ExecutorService executor = Executors.newFixedThreadPool(
+            threads, Thread.ofVirtual().name("kyb-upload-", 0).factory());
+        try (executor) {
+            CompletionService<Void> done = new ExecutorCompletionService<>(executor);
+            List<Future<Void>> pending = new ArrayList<>();
+            for (Upload upload : uploads) {
+                pending.add(done.submit(() -> {
+                    uploadFile(objectStore, upload);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < uploads.size(); i++) {
+                try {
+                    done.take().get();
+                } catch (ExecutionException e) {
+                    pending.forEach(f -> f.cancel(true));
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException io
+                        ? io
+                        : new IOException("Failed to upload KYB documents", cause);
+                } catch (InterruptedException e) {
+                    pending.forEach(f -> f.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while uploading KYB documents", e);
+                }
+            }
+        }
+    }
+
+    private void uploadFile(ObjectStore objectStore, Upload upload) throws IOException {
+        String key = upload.key();
         Headers headers = new Headers()
-            .add("original_filename", file.getName());
+            .add("original_filename", upload.file().getName());
 
         ObjectMeta fileMeta = ObjectMeta.builder(key)
             .headers(headers)
             .build();
 
-        try (FileInputStream fis = new FileInputStream(file)) {
+        // Each put reads through its own view, so shared content is safe across threads.
+        try (InputStream in = upload.content() != null
+                ? new ByteBufferInputStream(upload.content().duplicate())
+                : new FileInputStream(upload.file())) {
             log.info("Uploading: {}", key);
-            objectStore.put(fileMeta, fis);
-        } catch (JetStreamApiException | NoSuchAlgorithmException e) {
+            objectStore.put(fileMeta, in);
+        } catch (IOException e) {
+            // The bucket may have been deleted; look it up again next time.
+            objectStores.invalidate(objectStore.getBucketName());
+            throw e;
+        } catch (JetStreamApiException e) {
+            objectStores.invalidate(objectStore.getBucketName());
+            throw new IOException("Failed to upload KYB document: " + key, e);
+        } catch (NoSuchAlgorithmException e) {
             throw new IOException("Failed to upload KYB document: " + key, e);
         }
     }
 
-    private ObjectStore ensureObjectStore(String bucketName, JetStreamOptions jso, String entityId)
-            throws IOException, JetStreamApiException {
-        ObjectStoreOptions oso = ObjectStoreOptions.builder(jso).build();
-        ObjectStoreManagement osm = natsConnection.objectStoreManagement(oso);
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
 
-        try {
-            osm.getStatus(bucketName);
-        } catch (JetStreamApiException missingOrOther) {
-            ObjectStoreConfiguration osc = ObjectStoreConfiguration.builder(bucketName)
-                .description("KYB document dropbox for entity " + entityId)
-                .maxBucketSize(100L * 1024 * 1024)
-                .storageType(StorageType.File)
-                .replicas(1)
-                .ttl(Duration.ofDays(90))
-                .build();
-
-            try {
-                osm.create(osc);
-            } catch (JetStreamApiException createErr) {
-                osm.getStatus(bucketName);
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
             }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
         }
 
-        return natsConnection.objectStore(bucketName, oso);
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /** Config for a new KYB dropbox; only used when the bucket doesn't exist yet. */
+    private static ObjectStoreConfiguration bucketConfig(String bucketName, String entityId) {
+        return ObjectStoreConfiguration.builder(bucketName)
+            .description("KYB document dropbox for entity " + entityId)
+            .maxBucketSize(100L * 1024 * 1024)
+            .storageType(StorageType.File)
+            .replicas(1)
+            .ttl(Duration.ofDays(90))
+            .build();
     }
 }
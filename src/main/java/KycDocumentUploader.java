@@ -12,20 +12,21 @@ import org.slf4j.Logger;
 import io.nats.client.Connection;
 import io.nats.client.impl.Headers;
 import io.nats.client.JetStreamApiException;
-import io.nats.client.JetStreamOptions;
 import io.nats.client.ObjectStore;
-import io.nats.client.ObjectStoreManagement;
-import io.nats.client.ObjectStoreOptions;
 import io.nats.client.api.ObjectMeta;
 import io.nats.client.api.ObjectStoreConfiguration;
 import io.nats.client.api.StorageType;
 
 public class KycDocumentUploader {
-    private final Connection natsConnection;
+    private final ObjectStoreCache objectStores;
     private final Logger log;
 
     public KycDocumentUploader(Connection natsConnection, Logger log) {
-        this.natsConnection = natsConnection;
+        this(new ObjectStoreCache(natsConnection), log);
+    }
+
+    public KycDocumentUploader(ObjectStoreCache objectStores, Logger log) {
+        this.objectStores = objectStores;
         this.log = log;
     }
 
@@ -70,13 +71,9 @@ public class KycDocumentUploader {
             throw new IllegalArgumentException("At least one document is required for upload.");
         }
 
-        JetStreamOptions jso = JetStreamOptions.builder()
-            .requestTimeout(Duration.ofSeconds(10))
-            .build();
-
         ObjectStore objectStore;
         try {
-            objectStore = ensureObjectStore(bucketName, jso, userId);
+            objectStore = objectStores.get(bucketName, () -> bucketConfig(bucketName, userId));
             log.info("KYC bucket ready: {}", objectStore.getBucketName());
         } catch (JetStreamApiException e) {
             log.error("KYC bucket setup failed: {}", e.getMessage());
@@ -95,7 +92,12 @@ public class KycDocumentUploader {
                 log.info("Uploading the file: {}", entry.getKey());
                 objectStore.put(fileMeta, fis);
                 return true;
-            } catch (IOException | JetStreamApiException | NoSuchAlgorithmException e) {
+            } catch (IOException | JetStreamApiException e) {
+                // The bucket may have been deleted; look it up again next time.
+                objectStores.invalidate(bucketName);
+                log.error("Failed to upload KYC document: {}", e.getMessage());
+                return false;
+            } catch (NoSuchAlgorithmException e) {
                 log.error("Failed to upload KYC document: {}", e.getMessage());
                 return false;
             }
@@ -108,45 +110,15 @@ public class KycDocumentUploader {
         return new UploadResult(userId, bucketName, frontName, backName, proofName);
     }
 
-    /**
-     * Ensures the KYC Object Store bucket exists before use.
-     *
-     * Unlike the TypeScript/C# NATS SDKs, the Java SDK does NOT auto-create
-     * Object Store buckets. connection.objectStore() only binds to an existing
-     * bucket. You must use objectStoreManagement().create() to provision
-     * the bucket first.
-     *
-     * This method:
-     * 1. Checks if the bucket exists via getStatus()
-     * 2. If not found, creates it with the standard KYC config
-     * 3. Handles race conditions where another request creates it concurrently
-     * 4. Returns a bound ObjectStore handle ready for put/get operations
-     */
-    private ObjectStore ensureObjectStore(String bucketName, JetStreamOptions jso, String userId)
-            throws IOException, JetStreamApiException {
-        ObjectStoreOptions oso = ObjectStoreOptions.builder(jso).build();
-        ObjectStoreManagement osm = natsConnection.objectStoreManagement(oso);
-
-        try {
-            osm.getStatus(bucketName);
-        } catch (JetStreamApiException missingOrOther) {
-            ObjectStoreConfiguration osc = ObjectStoreConfiguration.builder(bucketName)
-                .description("KYC document dropbox for user " + userId)
-                .maxBucketSize(100L * 1024 * 1024) // 100 MB
-                .storageType(StorageType.File)
-                .replicas(1)
-                .ttl(Duration.ofDays(90))
-                .build();
-
-            try {
-                osm.create(osc);
-            } catch (JetStreamApiException createErr) {
-                // Allow for a race where another client created the bucket.
-                osm.getStatus(bucketName);
-            }
-        }
-
-        return natsConnection.objectStore(bucketName, oso);
+    /** Config for a new KYC dropbox; only used when the bucket doesn't exist yet. */
+    private static ObjectStoreConfiguration bucketConfig(String bucketName, String userId) {
+        return ObjectStoreConfiguration.builder(bucketName)
+            .description("KYC document dropbox for user " + userId)
+            .maxBucketSize(100L * 1024 * 1024) // 100 MB
+            .storageType(StorageType.File)
+            .replicas(1)
+            .ttl(Duration.ofDays(90))
+            .build();
     }
 
     // Replace with your actual implementation.
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamOptions;
+import io.nats.client.ObjectStore;
+import io.nats.client.ObjectStoreManagement;
+import io.nats.client.ObjectStoreOptions;
+import io.nats.client.api.ObjectStoreConfiguration;
+
+/**
+ * Bounded, TTL-evicting cache of bound Object Store handles, keyed by bucket.
+ *
+ * Without it every upload batch pays a getStatus (and sometimes a create)
+ * JetStream round trip before its first put. With it:
+ *
+ * - a bucket is checked/created once per TTL, then its handle is reused
+ * - concurrent callers for the same bucket wait on one lookup, so only one
+ *   of them ever calls osm.create (single flight)
+ * - a failed lookup is remembered for a short time (negative caching), so a
+ *   broken bucket or permission problem doesn't turn into a retry storm
+ * - uploaders invalidate a bucket whose put failed, so a bucket deleted
+ *   behind the cache is looked up (and recreated) on the next upload
+ * - the least recently used bucket is dropped once the cache is full
+ *
+ * Safe to share between uploaders and threads.
+ */
+public class ObjectStoreCache {
+    private final Connection natsConnection;
+    private final ObjectStoreOptions oso;
+    private final long ttlNanos;
+    private final long failureTtlNanos;
+    private final Map<String, Entry> entries;
+
+    private record Entry(CompletableFuture<ObjectStore> handle, long expiresAt) {}
+
+    public ObjectStoreCache(Connection natsConnection) {
+        this(natsConnection, 1024, Duration.ofMinutes(10), Duration.ofSeconds(5));
+    }
+
+    public ObjectStoreCache(Connection natsConnection, int maxBuckets, Duration ttl, Duration failureTtl) {
+        this.natsConnection = natsConnection;
+        this.oso = ObjectStoreOptions.builder(
+            JetStreamOptions.builder()
+                .requestTimeout(Duration.ofSeconds(10))
+                .build()
+        ).build();
+        this.ttlNanos = ttl.toNanos();
+        this.failureTtlNanos = failureTtl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxBuckets;
+            }
+        };
+    }
+
+    /**
+     * Returns a bound handle for the bucket, creating the bucket from
+     * {@code config} if it does not exist yet.
+     */
+    public ObjectStore get(String bucketName, Supplier<ObjectStoreConfiguration> config)
+            throws IOException, JetStreamApiException {
+        CompletableFuture<ObjectStore> handle;
+        CompletableFuture<ObjectStore> mine = null;
+        synchronized (entries) {
+            Entry entry = entries.get(bucketName);
+            if (entry != null && (!entry.handle().isDone() || System.nanoTime() - entry.expiresAt() < 0)) {
+                handle = entry.handle();
+            } else {
+                mine = new CompletableFuture<>();
+                handle = mine;
+                entries.put(bucketName, new Entry(mine, Long.MAX_VALUE));
+            }
+        }
+
+        if (mine != null) {
+            try {
+                mine.complete(ensureObjectStore(bucketName, config));
+                expireAfter(bucketName, mine, ttlNanos);
+            } catch (IOException | JetStreamApiException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                expireAfter(bucketName, mine, failureTtlNanos);
+            } catch (Throwable t) {
+                // An Error: release the waiters, and let the next caller try again.
+                mine.completeExceptionally(t);
+                expireAfter(bucketName, mine, 0);
+                throw t;
+            }
+        }
+
+        try {
+            return handle.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof JetStreamApiException jsa) throw jsa;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /** Forgets the bucket, e.g. after a put reports it no longer exists. */
+    public void invalidate(String bucketName) {
+        synchronized (entries) {
+            entries.remove(bucketName);
+        }
+    }
+
+    private void expireAfter(String bucketName, CompletableFuture<ObjectStore> handle, long nanos) {
+        synchronized (entries) {
+            Entry entry = entries.get(bucketName);
+            if (entry != null && entry.handle() == handle) {
+                entries.put(bucketName, new Entry(handle, System.nanoTime() + nanos));
+            }
+        }
+    }
+
+    /**
+     * Ensures the Object Store bucket exists before use.
+     *
+     * Unlike the TypeScript/C# NATS SDKs, the Java SDK does NOT auto-create
+     * Object Store buckets. connection.objectStore() only binds to an existing
+     * bucket. You must use objectStoreManagement().create() to provision
+     * the bucket first.
+     *
+     * This method:
+     * 1. Checks if the bucket exists via getStatus()
+     * 2. If not found, creates it with the caller's config
+     * 3. Handles race conditions where another client creates it concurrently
+     * 4. Returns a bound ObjectStore handle ready for put/get operations
+     */
+    private ObjectStore ensureObjectStore(String bucketName, Supplier<ObjectStoreConfiguration> config)
+            throws IOException, JetStreamApiException {
+        ObjectStoreManagement osm = natsConnection.objectStoreManagement(oso);
+
+        try {
+            osm.getStatus(bucketName);
+        } catch (JetStreamApiException missingOrOther) {
+            try {
+                osm.create(config.get());
+            } catch (JetStreamApiException createErr) {
+                // Allow for a race where another client created the bucket.
+                osm.getStatus(bucketName);
+            }
+        }
+
+        return natsConnection.objectStore(bucketName, oso);
+    }
+}
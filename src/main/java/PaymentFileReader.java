@@ -0,0 +1,532 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import client.AccountService;
+
+/**
+ * Streams payment instructions out of a bulk CSV or fixed-width file.
+ *
+ * The file is memory-mapped a window at a time (64 MB by default), so heap
+ * use does not grow with file size. Each line is parsed in place into a
+ * reusable Row that only records where its fields sit in the mapped window;
+ * Strings are created when a Row is turned into a request, not while parsing.
+ *
+ * Columns, in order:
+ *
+ *   account_id, client_tx_id, amount_cents, account_number, branch_code,
+ *   name, ref, own_ref, rtc
+ *
+ * - a UTF-8 byte order mark at the start of the file is ignored
+ * - the first non-blank line is treated as a header if it starts with
+ *   "account_id"
+ * - blank lines are skipped; "\n" and "\r\n" line endings are both accepted
+ * - CSV fields may be double-quoted, with "" for a literal quote; a line
+ *   with more than nine fields, even an empty one after a trailing
+ *   delimiter, is an error
+ * - account_id and client_tx_id may be left empty for the caller to fill in
+ * - rtc accepts true/false, 1/0, rtc/eft (case-insensitive); empty means RTC
+ *
+ * Read rows directly with next(Row), or call feed() to parse on a
+ * background thread into a bounded queue.
+ */
+public class PaymentFileReader implements AutoCloseable {
+    public static final long DEFAULT_WINDOW = 64L << 20;
+
+    public enum Column {
+        ACCOUNT_ID, CLIENT_TX_ID, AMOUNT_CENTS, ACCOUNT_NUMBER, BRANCH_CODE, NAME, REF, OWN_REF, RTC
+    }
+
+    private static final int FIELDS = Column.values().length;
+    private static final Column[] REQUIRED = { Column.ACCOUNT_NUMBER, Column.BRANCH_CODE, Column.NAME };
+    private static final byte[] HEADER = "account_id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    /** How fields are laid out on a line. */
+    public static final class Format {
+        private final byte delimiter;
+        private final int[] widths;
+
+        private Format(byte delimiter, int[] widths) {
+            this.delimiter = delimiter;
+            this.widths = widths;
+        }
+
+        public static Format csv() {
+            return new Format((byte) ',', null);
+        }
+
+        public static Format delimited(char delimiter) {
+            if (delimiter > 0x7f || delimiter == '"') {
+                throw new IllegalArgumentException("Delimiter must be an ASCII character other than '\"'");
+            }
+            return new Format((byte) delimiter, null);
+        }
+
+        /** Fixed-width columns; values are trimmed of surrounding spaces. */
+        public static Format fixedWidth(int... widths) {
+            if (widths.length != FIELDS) {
+                throw new IllegalArgumentException("Expected " + FIELDS + " column widths, got " + widths.length);
+            }
+            return new Format((byte) 0, widths.clone());
+        }
+    }
+
+    /** Parse counters; read them once parsing has finished. */
+    public record Stats(long bytes, long rows, long nanos) {
+        public double mbPerSecond() {
+            return nanos == 0 ? 0 : (bytes / 1e6) / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %.1f MB in %.2fs = %.1f MB/s",
+                rows, bytes / 1e6, nanos / 1e9, mbPerSecond());
+        }
+    }
+
+    /**
+     * One parsed line. Rows are meant to be reused: each next(Row) call
+     * overwrites the previous contents.
+     */
+    public static final class Row {
+        private ByteBuffer window;
+        private final int[] start = new int[FIELDS];
+        private final int[] length = new int[FIELDS];
+        private final boolean[] escaped = new boolean[FIELDS];
+        private long lineNumber;
+        private long amountCents;
+        private boolean rtc;
+        private String error;
+
+        /** 1-based line number in the file. */
+        public long lineNumber() {
+            return lineNumber;
+        }
+
+        public long amountCents() {
+            return amountCents;
+        }
+
+        public boolean rtc() {
+            return rtc;
+        }
+
+        /** Why the line could not be used, or null if it is valid. */
+        public String error() {
+            return error;
+        }
+
+        public boolean isBlank(Column column) {
+            return length[column.ordinal()] == 0;
+        }
+
+        /** Decodes one field; empty fields come back as null. */
+        public String get(Column column) {
+            int i = column.ordinal();
+            if (length[i] == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length[i]];
+            window.get(start[i], bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            return escaped[i] ? value.replace("\"\"", "\"") : value;
+        }
+
+        /**
+         * Builds the request, using the fallbacks for an empty account_id or
+         * client_tx_id.
+         */
+        public AccountService.TransferEFTRTCRequest toRequest(String fallbackAccountId, String fallbackClientTxId) {
+            if (error != null) {
+                throw new IllegalStateException("Line " + lineNumber + ": " + error);
+            }
+            String accountId = get(Column.ACCOUNT_ID);
+            String clientTxId = get(Column.CLIENT_TX_ID);
+            return new AccountService.TransferEFTRTCRequest(
+                accountId != null ? accountId : fallbackAccountId,
+                clientTxId != null ? clientTxId : fallbackClientTxId,
+                (int) amountCents,
+                get(Column.REF),
+                get(Column.OWN_REF),
+                get(Column.ACCOUNT_NUMBER),
+                get(Column.BRANCH_CODE),
+                get(Column.NAME),
+                rtc,
+                null,   // notification_email
+                null,   // notification_name
+                null,   // beneficiary_id
+                0       // beneficiary_version
+            );
+        }
+
+        private void set(int field, int from, int to, boolean hasEscapes) {
+            start[field] = from;
+            length[field] = to - from;
+            escaped[field] = hasEscapes;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final Format format;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int pos;
+    private int end;
+    private long lineNumber;
+    private boolean pastHeader;
+    private long rows;
+    private long parseNanos;
+
+    public PaymentFileReader(Path file, Format format) throws IOException {
+        this(file, format, DEFAULT_WINDOW);
+    }
+
+    public PaymentFileReader(Path file, Format format, long windowSize) throws IOException {
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.format = format;
+    }
+
+    /**
+     * Parses the next non-blank line into {@code into}.
+     *
+     * @return false at end of file
+     * @throws IOException if the file cannot be mapped or a line is longer
+     *                     than the map window
+     */
+    public boolean next(Row into) throws IOException {
+        long started = System.nanoTime();
+        try {
+            while (true) {
+                if (pos >= end && !advance()) {
+                    return false;
+                }
+                int lineStart = pos;
+                if (windowStart == 0 && lineStart == 0 && startsWith(0, end, BOM)) {
+                    lineStart = BOM.length;
+                }
+                int newline = lineStart;
+                while (newline < end && window.get(newline) != '\n') {
+                    newline++;
+                }
+                int lineEnd = newline;
+                if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                pos = Math.min(newline + 1, end);
+                lineNumber++;
+
+                if (lineEnd == lineStart) {
+                    continue;
+                }
+                if (!pastHeader) {
+                    pastHeader = true;
+                    if (startsWith(lineStart, lineEnd, HEADER)) {
+                        continue;
+                    }
+                }
+                parse(into, lineStart, lineEnd);
+                rows++;
+                return true;
+            }
+        } finally {
+            parseNanos += System.nanoTime() - started;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(windowStart + pos, rows, parseNanos);
+    }
+
+    /**
+     * Parses on a background thread into a queue of at most {@code capacity}
+     * rows. Rows are drawn from a fixed pool, so the consumer must hand each
+     * one back with {@link Feed#recycle} once it is done with it.
+     */
+    public Feed feed(int capacity) {
+        return new Feed(capacity);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Maps the window starting at the first unread line. */
+    private boolean advance() throws IOException {
+        long next = window == null ? 0 : windowStart + end;
+        if (next >= size) {
+            return false;
+        }
+        long length = Math.min(windowSize, size - next);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, next, length);
+        int complete = (int) length;
+        if (next + length < size) {
+            // Stop at the last full line; the remainder starts the next window.
+            complete--;
+            while (complete >= 0 && mapped.get(complete) != '\n') {
+                complete--;
+            }
+            if (complete < 0) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than the "
+                    + windowSize + "-byte map window");
+            }
+            complete++;
+        }
+        window = mapped;
+        windowStart = next;
+        pos = 0;
+        end = complete;
+        return true;
+    }
+
+    private boolean startsWith(int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (window.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parse(Row row, int from, int to) {
+        row.window = window;
+        row.lineNumber = lineNumber;
+        row.error = format.widths == null ? splitDelimited(row, from, to) : splitFixed(row, from, to);
+        if (row.error == null) {
+            row.error = convert(row);
+        }
+    }
+
+    private String splitDelimited(Row row, int from, int to) {
+        byte delimiter = format.delimiter;
+        int i = from;
+        int field = 0;
+        while (field < FIELDS) {
+            if (i < to && window.get(i) == '"') {
+                int valueStart = ++i;
+                boolean hasEscapes = false;
+                while (true) {
+                    if (i >= to) {
+                        return "unterminated quote in column " + (field + 1);
+                    }
+                    if (window.get(i) == '"') {
+                        if (i + 1 < to && window.get(i + 1) == '"') {
+                            hasEscapes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                row.set(field, valueStart, i, hasEscapes);
+                i++;
+            } else {
+                int valueStart = i;
+                while (i < to && window.get(i) != delimiter) {
+                    i++;
+                }
+                row.set(field, valueStart, i, false);
+            }
+            field++;
+            if (i >= to) {
+                break;
+            }
+            if (window.get(i) != delimiter) {
+                return "unexpected character after quoted column " + field;
+            }
+            i++;
+            if (field == FIELDS) {
+                return "more than " + FIELDS + " columns";
+            }
+        }
+        for (; field < FIELDS; field++) {
+            row.set(field, to, to, false);
+        }
+        return null;
+    }
+
+    private String splitFixed(Row row, int from, int to) {
+        int at = from;
+        for (int field = 0; field < FIELDS; field++) {
+            int valueStart = Math.min(at, to);
+            int valueEnd = Math.min(at + format.widths[field], to);
+            at += format.widths[field];
+            while (valueStart < valueEnd && window.get(valueStart) == ' ') {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && window.get(valueEnd - 1) == ' ') {
+                valueEnd--;
+            }
+            row.set(field, valueStart, valueEnd, false);
+        }
+        return null;
+    }
+
+    private String convert(Row row) {
+        int amount = Column.AMOUNT_CENTS.ordinal();
+        int from = row.start[amount];
+        int to = from + row.length[amount];
+        if (from == to) {
+            return "amount_cents is empty";
+        }
+        long cents = 0;
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                return "amount_cents is not a whole number of cents";
+            }
+            cents = cents * 10 + (b - '0');
+            if (cents > Integer.MAX_VALUE) {
+                return "amount_cents is too large";
+            }
+        }
+        if (cents == 0) {
+            return "amount_cents must be positive";
+        }
+        row.amountCents = cents;
+
+        for (Column required : REQUIRED) {
+            if (row.isBlank(required)) {
+                return required.name().toLowerCase() + " is empty";
+            }
+        }
+
+        int rtc = Column.RTC.ordinal();
+        from = row.start[rtc];
+        to = from + row.length[rtc];
+        if (from == to || equalsIgnoreCase(from, to, "true") || equalsIgnoreCase(from, to, "1")
+                || equalsIgnoreCase(from, to, "rtc")) {
+            row.rtc = true;
+        } else if (equalsIgnoreCase(from, to, "false") || equalsIgnoreCase(from, to, "0")
+                || equalsIgnoreCase(from, to, "eft")) {
+            row.rtc = false;
+        } else {
+            return "rtc must be true/false, 1/0 or rtc/eft";
+        }
+        return null;
+    }
+
+    private boolean equalsIgnoreCase(int from, int to, String ascii) {
+        if (to - from != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (Character.toLowerCase((char) window.get(from + i)) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rows parsed ahead on a background thread. Iterate it, and recycle each
+     * row once its values have been copied out.
+     */
+    public final class Feed implements Iterator<Row>, AutoCloseable {
+        private final Row done = new Row();
+        private final BlockingQueue<Row> parsed;
+        private final BlockingQueue<Row> free;
+        private final Thread producer;
+        private volatile Throwable failure;
+        private Row pending;
+
+        private Feed(int capacity) {
+            this.parsed = new ArrayBlockingQueue<>(capacity + 1);
+            this.free = new ArrayBlockingQueue<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                free.add(new Row());
+            }
+            this.producer = Thread.ofPlatform()
+                .name("payment-file-reader")
+                .daemon()
+                .start(this::produce);
+        }
+
+        private void produce() {
+            try {
+                while (true) {
+                    Row row = free.take();
+                    if (!PaymentFileReader.this.next(row)) {
+                        break;
+                    }
+                    parsed.put(row);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+            parsed.add(done);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending == null) {
+                try {
+                    pending = parsed.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for payment rows", e);
+                }
+            }
+            if (pending == done) {
+                parsed.add(done);
+                pending = null;
+                if (failure != null) {
+                    throw new IllegalStateException("Failed to read payment file", failure);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = pending;
+            pending = null;
+            return row;
+        }
+
+        /** Returns a row to the pool so the parser can refill it. */
+        public void recycle(Row row) {
+            row.window = null;
+            free.add(row);
+        }
+
+        /** Parse counters; complete once iteration has finished. */
+        public Stats stats() {
+            return PaymentFileReader.this.stats();
+        }
+
+        /** Stops the parser. The file itself is closed by the reader. */
+        @Override
+        public void close() throws InterruptedException {
+            producer.interrupt();
+            producer.join();
+        }
+    }
+}
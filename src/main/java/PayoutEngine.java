@@ -0,0 +1,289 @@
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import client.AccountService;
+
+/**
+ * Pipelines a stream of transfers through AccountService.
+ *
+ * Unlike TransferApp, which sends one transfer and blocks on it, the engine
+ * keeps up to maxInFlight transfers pending at once:
+ *
+ * - transfers from the same source account are sent strictly in input
+ *   order, each after the previous one has completed (successfully or not);
+ *   a transfer that times out is reported as failed at once, but the next
+ *   one on its account still waits until the timed-out request itself has
+ *   answered or failed, since the server may yet apply it. A request that
+ *   never completes therefore holds up the rest of its account, and keeps
+ *   its place in maxInFlight
+ * - transfers from different accounts run concurrently
+ * - a transfer waiting behind an earlier one on its account counts towards
+ *   maxInFlight, so memory stays bounded however the input is ordered; the
+ *   producer blocks once the limit is reached
+ * - every transfer gets a Result (response or error, plus latency), and
+ *   run() returns a Summary with throughput and latency percentiles, taken
+ *   from a fixed-size histogram rather than from every sample
+ *
+ * The send functions are pluggable, so the engine can be driven against
+ * an in-process stand-in as well as a live AccountService.
+ *
+ * With a TransferJournal, each transfer's intent is on disk before it is
+ * sent and its outcome is appended when the reply arrives.
+ */
+public class PayoutEngine {
+    private final Function<AccountService.TransferEFTRTCRequest,
+        CompletableFuture<AccountService.TransferEFTRTCResponse>> eft;
+    private final Function<AccountService.TransferInternalRequest,
+        CompletableFuture<AccountService.TransferEFTRTCResponse>> internal;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final TransferJournal journal;
+
+    public PayoutEngine(AccountService accountService, int maxInFlight, Duration timeout) {
+        this(accountService, maxInFlight, timeout, null);
+    }
+
+    public PayoutEngine(AccountService accountService, int maxInFlight, Duration timeout, TransferJournal journal) {
+        this(accountService::transfer_eft_rtc, accountService::transfer_internal, maxInFlight, timeout, journal);
+    }
+
+    public PayoutEngine(
+            Function<AccountService.TransferEFTRTCRequest,
+                CompletableFuture<AccountService.TransferEFTRTCResponse>> eft,
+            Function<AccountService.TransferInternalRequest,
+                CompletableFuture<AccountService.TransferEFTRTCResponse>> internal,
+            int maxInFlight,
+            Duration timeout) {
+        this(eft, internal, maxInFlight, timeout, null);
+    }
+
+    public PayoutEngine(
+            Function<AccountService.TransferEFTRTCRequest,
+                CompletableFuture<AccountService.TransferEFTRTCResponse>> eft,
+            Function<AccountService.TransferInternalRequest,
+                CompletableFuture<AccountService.TransferEFTRTCResponse>> internal,
+            int maxInFlight,
+            Duration timeout,
+            TransferJournal journal) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.eft = eft;
+        this.internal = internal;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.journal = journal;
+    }
+
+    /** One transfer to send: an EFT/RTC payout or an internal transfer. */
+    public sealed interface Instruction permits Eft, Internal {
+        String accountId();
+        String clientTxId();
+    }
+
+    public record Eft(AccountService.TransferEFTRTCRequest request) implements Instruction {
+        public String accountId() { return request.account_id(); }
+        public String clientTxId() { return request.clientTxId(); }
+    }
+
+    public record Internal(AccountService.TransferInternalRequest request) implements Instruction {
+        public String accountId() { return request.account_id(); }
+        public String clientTxId() { return request.clientTxId(); }
+    }
+
+    /** Outcome of one instruction; exactly one of response and error is set. */
+    public record Result(
+        long index,
+        Instruction instruction,
+        AccountService.TransferEFTRTCResponse response,
+        Throwable error,
+        long latencyNanos
+    ) {
+        public boolean ok() { return error == null; }
+    }
+
+    public record Summary(
+        long total,
+        long succeeded,
+        long failed,
+        Duration elapsed,
+        double perSecond,
+        Duration p50,
+        Duration p99,
+        Duration max
+    ) {
+        @Override
+        public String toString() {
+            return String.format(
+                "%d transfers (%d ok, %d failed) in %.1fs = %.0f/s, latency p50=%.1fms p99=%.1fms max=%.1fms",
+                total, succeeded, failed, elapsed.toMillis() / 1000.0, perSecond,
+                p50.toNanos() / 1e6, p99.toNanos() / 1e6, max.toNanos() / 1e6);
+        }
+    }
+
+    /**
+     * Sends every instruction and waits for all of them to finish.
+     *
+     * @param instructions transfers, pulled lazily as capacity frees up
+     * @param onResult     called once per instruction, from whichever thread
+     *                     completed it; must be thread-safe. An exception it
+     *                     throws does not hold up the account's later transfers
+     */
+    public Summary run(Iterator<? extends Instruction> instructions, Consumer<Result> onResult)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        ConcurrentMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Latencies latencies = new Latencies();
+
+        long start = System.nanoTime();
+        long index = 0;
+        while (instructions.hasNext()) {
+            Instruction instruction = instructions.next();
+            permits.acquire();
+            long i = index++;
+
+            // Chain behind the account's previous transfer, whatever its outcome:
+            // a tail that failed (say, onResult threw) must not skip the rest.
+            CompletableFuture<Void> previous = tails.get(instruction.accountId());
+            CompletableFuture<Void> ready = previous == null
+                ? CompletableFuture.completedFuture(null)
+                : previous.handle((ignored, error) -> null);
+            CompletableFuture<Void> tail = ready
+                .thenCompose(ignored -> send(instruction, i, onResult, succeeded, failed, latencies))
+                .whenComplete((ignored, error) -> permits.release());
+            tails.put(instruction.accountId(), tail);
+            tail.whenComplete((ignored, error) -> tails.remove(instruction.accountId(), tail));
+        }
+
+        // Every permit back means every transfer has finished.
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        long total = succeeded.get() + failed.get();
+        double seconds = Math.max(elapsed.toNanos(), 1) / 1e9;
+        return new Summary(
+            total, succeeded.get(), failed.get(), elapsed, total / seconds,
+            latencies.percentile(0.50), latencies.percentile(0.99), latencies.percentile(1.0));
+    }
+
+    private CompletableFuture<Void> send(
+            Instruction instruction,
+            long index,
+            Consumer<Result> onResult,
+            AtomicLong succeeded,
+            AtomicLong failed,
+            Latencies latencies) {
+        long sentAt = System.nanoTime();
+        CompletableFuture<AccountService.TransferEFTRTCResponse> reply = journal == null
+            ? dispatch(instruction)
+            : journal.intent(instruction).thenCompose(durable -> dispatch(instruction));
+        // The timeout only decides when the Result is reported. The request
+        // itself may still reach the server, so the account's next transfer
+        // waits for its real answer, which is also what the journal records.
+        CompletableFuture<Void> reported = reply.copy()
+            .orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+            .handle((response, error) -> {
+                long latency = System.nanoTime() - sentAt;
+                Throwable cause = unwrap(error);
+                latencies.add(latency);
+                (error == null ? succeeded : failed).incrementAndGet();
+                onResult.accept(new Result(index, instruction, response, cause, latency));
+                return null;
+            });
+        CompletableFuture<Void> settled = reply.handle((response, error) -> {
+            if (journal != null) {
+                journal.outcome(instruction.clientTxId(), response, unwrap(error));
+            }
+            return null;
+        });
+        return reported.thenCombine(settled, (a, b) -> null);
+    }
+
+    private CompletableFuture<AccountService.TransferEFTRTCResponse> dispatch(Instruction instruction) {
+        try {
+            return switch (instruction) {
+                case Eft e -> eft.apply(e.request());
+                case Internal in -> internal.apply(in.request());
+            };
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Latency histogram with log-linear buckets, as in HdrHistogram: values
+     * under SUB get a bucket each, and every power of two above that is cut
+     * into SUB equal buckets. A percentile is therefore within 1/SUB (under
+     * 1%) of the sample it stands for, and the histogram stays the same size
+     * however many transfers run; only the maximum is kept exactly.
+     */
+    private static final class Latencies {
+        private static final int SUB_BITS = 7;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final long[] counts = new long[SUB * (64 - SUB_BITS)];
+        private long count;
+        private long max;
+
+        synchronized void add(long nanos) {
+            counts[index(Math.max(0, nanos))]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        synchronized Duration percentile(double p) {
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            long rank = Math.min(count - 1, (long) (count * p));
+            if (rank == count - 1) {
+                return Duration.ofNanos(max);
+            }
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return Duration.ofNanos(Math.min(max, highest(i)));
+                }
+            }
+            return Duration.ofNanos(max);
+        }
+
+        private static int index(long nanos) {
+            if (nanos < SUB) {
+                return (int) nanos;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+            return SUB * (shift + 1) + (int) (nanos >>> shift) - SUB;
+        }
+
+        /** The largest value that falls into bucket i. */
+        private static long highest(int i) {
+            if (i < SUB) {
+                return i;
+            }
+            int shift = i / SUB - 1;
+            long lowest = (long) (SUB + i % SUB) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+    }
+}
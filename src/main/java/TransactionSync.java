@@ -0,0 +1,284 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import client.AccountService;
+import client.Timestamps;
+
+/**
+ * Incremental transaction sync: turns each account's full transaction list
+ * into just the transactions that are new or whose status changed since the
+ * last sync.
+ *
+ * Per account it keeps a high-water mark (the newest date seen, as epoch
+ * milliseconds, and its tx_id) and a Bloom filter holding each tx_id and each tx_id+status pair seen.
+ * A transaction whose tx_id is missing is new; one whose tx_id is present
+ * but not with its current status has changed. Anything dated after the
+ * high-water mark is new without consulting the filter. Dates are compared
+ * as instants (see client.Timestamps), so offsets and fraction digits do not
+ * matter; a date that does not parse never moves the mark.
+ *
+ * - memory is about 6 bytes per transaction: 16 bits per key, two keys,
+ *   and room for the history to grow by half; once it has outgrown that,
+ *   the filter is rebuilt from the next list, which also drops statuses a
+ *   transaction no longer has
+ * - a Bloom filter can report a key it never saw, at about 1 in 2000 per
+ *   lookup at full load, and such a change is missed until the status moves
+ *   again; use a full diff where that matters
+ * - for the same reason a status that returns to one the transaction had
+ *   before (A, then B, then A again) is already in the filter, so the move
+ *   back is not reported until the filter is next rebuilt
+ * - the first sync of an account reports its whole history as new
+ * - save() writes the state atomically (temp file, then rename) with a
+ *   CRC32, so a restart resumes instead of re-diffing everything
+ */
+public class TransactionSync {
+    private static final int MAGIC = 0x56535943;    // "VSYC"
+    private static final int VERSION = 1;
+    private static final int BITS_PER_KEY = 16;
+    private static final int HASHES = 11;           // ≈ BITS_PER_KEY * ln 2
+    private static final int MIN_KEYS = 64;
+
+    public enum Kind { NEW, STATUS_CHANGED }
+
+    public record Change(String accountId, Kind kind, AccountService.Transaction transaction) {}
+
+    /** The newest transaction seen for an account; dateMillis is its date in epoch milliseconds. */
+    public record HighWaterMark(long dateMillis, String txId) {}
+
+    private final Path path;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    private TransactionSync(Path path) {
+        this.path = path;
+    }
+
+    /** Loads the state saved at path, or starts empty if there is none. */
+    public static TransactionSync open(Path path) throws IOException {
+        TransactionSync sync = new TransactionSync(path);
+        if (Files.exists(path)) {
+            sync.load();
+        }
+        return sync;
+    }
+
+    /** Lists the account's transactions and returns what changed since the last sync. */
+    public CompletableFuture<List<Change>> sync(AccountService accountService, String accountId) {
+        return accountService.list(new AccountService.GetTransactionsRequest(accountId, null))
+            .thenApply(resp -> diff(accountId, resp.transactions()));
+    }
+
+    /** The changes in a full transaction list since the last one seen for the account. */
+    public List<Change> diff(String accountId, List<AccountService.Transaction> transactions) {
+        List<Change> changes = new ArrayList<>();
+        if (transactions == null) {
+            return changes;
+        }
+        Account account = accounts.computeIfAbsent(accountId, id -> new Account());
+        synchronized (account) {
+            Filter seen = account.filter;
+            // Every key the filter should hold is in this list, since the list is the
+            // account's full history, so an overfull filter is rebuilt from it.
+            Filter next = seen == null || seen.count > seen.capacity
+                ? new Filter(Math.max(MIN_KEYS, 3 * transactions.size()))
+                : seen;
+            long newestMillis = account.newestMillis;
+            String newestTxId = account.newestTxId;
+
+            for (AccountService.Transaction tx : transactions) {
+                if (tx == null || tx.tx_id() == null) {
+                    continue;
+                }
+                long id = hash(tx.tx_id(), 0);
+                long withStatus = hash(tx.status(), id);
+                long date = Timestamps.parseMillis(tx.date());
+                boolean pastMark = date != Timestamps.INVALID && date > account.newestMillis;
+
+                if (pastMark || seen == null || !seen.mightContain(id)) {
+                    changes.add(new Change(accountId, Kind.NEW, tx));
+                } else if (!seen.mightContain(withStatus)) {
+                    changes.add(new Change(accountId, Kind.STATUS_CHANGED, tx));
+                }
+                next.add(id);
+                next.add(withStatus);
+
+                if (date != Timestamps.INVALID && date > newestMillis) {
+                    newestMillis = date;
+                    newestTxId = tx.tx_id();
+                }
+            }
+            account.filter = next;
+            account.newestMillis = newestMillis;
+            account.newestTxId = newestTxId;
+        }
+        return changes;
+    }
+
+    public HighWaterMark highWaterMark(String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return null;
+        }
+        synchronized (account) {
+            return account.newestMillis == Timestamps.INVALID
+                ? null
+                : new HighWaterMark(account.newestMillis, account.newestTxId);
+        }
+    }
+
+    /** Writes the state for every account, replacing the saved file in one step. */
+    public synchronized void save() throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            List<Map.Entry<String, Account>> entries = new ArrayList<>(accounts.entrySet());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Account> entry : entries) {
+                Account account = entry.getValue();
+                synchronized (account) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(account.newestMillis);
+                    out.writeUTF(account.newestTxId == null ? "" : account.newestTxId);
+                    Filter filter = account.filter;
+                    out.writeInt(filter == null ? 0 : filter.capacity);
+                    if (filter != null) {
+                        out.writeInt(filter.count);
+                        for (long word : filter.bits) {
+                            out.writeLong(word);
+                        }
+                    }
+                }
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        CRC32 crc = new CRC32();
+        // Checked outside the buffer, so the CRC covers only what has been read.
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a transaction sync state file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String accountId = in.readUTF();
+                Account account = new Account();
+                account.newestMillis = in.readLong();
+                account.newestTxId = emptyToNull(in.readUTF());
+                int capacity = in.readInt();
+                if (capacity > 0) {
+                    Filter filter = new Filter(capacity);
+                    filter.count = in.readInt();
+                    for (int w = 0; w < filter.bits.length; w++) {
+                        filter.bits[w] = in.readLong();
+                    }
+                    account.filter = filter;
+                }
+                accounts.put(accountId, account);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt transaction sync state in " + path);
+            }
+        }
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    /** FNV-1a over the string's chars, seeded, then a 64-bit finalizer; allocation-free. */
+    private static long hash(String s, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h = (h ^ s.charAt(i)) * 0x100000001B3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static final class Account {
+        private long newestMillis = Timestamps.INVALID;
+        private String newestTxId;
+        private Filter filter;
+    }
+
+    /** Bloom filter over 64-bit key hashes, probed by double hashing. */
+    private static final class Filter {
+        private final int capacity;
+        private final long[] bits;
+        private final long size;
+        private int count;
+
+        private Filter(int capacity) {
+            this.capacity = capacity;
+            this.bits = new long[(int) (((long) capacity * BITS_PER_KEY + 63) >>> 6)];
+            this.size = (long) bits.length << 6;
+        }
+
+        boolean mightContain(long hash) {
+            for (int i = 0; i < HASHES; i++) {
+                long bit = bit(hash, i);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash) {
+            boolean added = false;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = bit(hash, i);
+                long word = bits[(int) (bit >>> 6)];
+                if ((word & (1L << bit)) == 0) {
+                    bits[(int) (bit >>> 6)] = word | (1L << bit);
+                    added = true;
+                }
+            }
+            if (added) {
+                count++;
+            }
+        }
+
+        /** The i-th probe, mapped onto [0, size) by multiplying rather than dividing. */
+        private long bit(long hash, int i) {
+            long probe = ((int) hash + i * ((int) (hash >>> 32) | 1)) & 0xFFFFFFFFL;
+            return (probe * size) >>> 32;
+        }
+    }
+}
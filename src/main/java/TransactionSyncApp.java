@@ -0,0 +1,77 @@
+import client.AccountService;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciliation: report transactions that are new or changed status.
+ *
+ * Usage:  ./gradlew run -PmainClass=TransactionSyncApp --args="[account_id ...]"
+ * Reads:  entity_id from state.json, when no account ids are given
+ * Writes: transactions.sync, the TransactionSync state for the next run
+ *
+ * Each account's transactions are listed and diffed against what the last
+ * run saw, so only new transactions and status changes are printed. The
+ * first run for an account prints its whole history.
+ */
+public class TransactionSyncApp {
+    public static void main(String[] args) throws Exception {
+        System.out.println();
+        System.out.println("══════════════════════════════════════════");
+        System.out.println("  Transaction Sync");
+        System.out.println("══════════════════════════════════════════");
+        System.out.println();
+
+        TransactionSync sync = TransactionSync.open(Path.of("transactions.sync"));
+        try (VertexClient client = new VertexClient()) {
+            AccountService accountService = client.accountService();
+            List<String> accountIds = args.length > 0 ? List.of(args) : entityAccounts(accountService);
+            if (accountIds.isEmpty()) {
+                System.err.println("  ✗ No account ids given and no accounts for entity_id in state.json");
+                return;
+            }
+
+            long started = System.nanoTime();
+            List<CompletableFuture<List<TransactionSync.Change>>> cycles = new ArrayList<>();
+            for (String accountId : accountIds) {
+                cycles.add(sync.sync(accountService, accountId));
+            }
+            int changes = 0;
+            for (int i = 0; i < cycles.size(); i++) {
+                try {
+                    for (TransactionSync.Change change : cycles.get(i).get(60, TimeUnit.SECONDS)) {
+                        AccountService.Transaction tx = change.transaction();
+                        System.out.println("  " + (change.kind() == TransactionSync.Kind.NEW ? "+ " : "~ ")
+                            + change.accountId() + "  " + tx.tx_id() + "  " + tx.date()
+                            + "  " + tx.amount() + "  " + tx.status());
+                        changes++;
+                    }
+                } catch (Exception e) {
+                    System.err.println("  ✗ " + accountIds.get(i) + ": " + e.getMessage());
+                }
+            }
+            sync.save();
+
+            System.out.println();
+            System.out.printf("  ✓ %d accounts, %d changes in %.0f ms%n",
+                accountIds.size(), changes, (System.nanoTime() - started) / 1e6);
+            System.out.println();
+        }
+    }
+
+    private static List<String> entityAccounts(AccountService accountService) throws Exception {
+        String entityId = State.load().get("entity_id");
+        if (entityId == null) {
+            return List.of();
+        }
+        AccountService.GetAccountsByEntityResponse accounts = accountService.get_by_entity(
+            new AccountService.GetAccountsByEntityRequest(entityId)
+        ).get(30, TimeUnit.SECONDS);
+        if (accounts.accounts() == null) {
+            return List.of();
+        }
+        return accounts.accounts().stream().map(AccountService.AccountSummary::account_id).toList();
+    }
+}
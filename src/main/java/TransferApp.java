@@ -1,4 +1,8 @@
 import client.AccountService;
+import client.Money;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -6,6 +10,8 @@ import java.util.concurrent.TimeUnit;
  *
  * Usage:  ./gradlew run -PmainClass=TransferApp
  * Reads:  entity_id from state.json to look up accounts
+ * Writes: transfers.journal, so a transfer interrupted by a crash is re-sent
+ *         with the same clientTxId on the next run
  *
  * Transfer details are configured below or passed as args:
  *   ./gradlew run -PmainClass=TransferApp --args="<amount_cents> <account_number> <branch_code> <name> <ref>"
@@ -21,9 +27,20 @@ public class TransferApp {
         State state = State.load();
         String entityId = state.require("entity_id");
 
-        try (VertexClient client = new VertexClient()) {
+        try (VertexClient client = new VertexClient();
+             TransferJournal journal = TransferJournal.open(Path.of("transfers.journal"))) {
             AccountService accountService = client.accountService();
 
+            if (!journal.pending().isEmpty()) {
+                System.out.println("  → Re-sending unfinished transfers (" + journal.recovery() + ")...");
+                PayoutEngine.Summary replayed = new PayoutEngine(accountService, 16, Duration.ofSeconds(30), journal)
+                    .run(journal.pending().iterator(), result -> System.out.println(
+                        "    " + (result.ok() ? "✓ " : "✗ ") + result.instruction().clientTxId()
+                            + (result.ok() ? " → " + result.response().tx_id() : ": " + result.error().getMessage())));
+                System.out.println("  ✓ " + replayed);
+                System.out.println();
+            }
+
             // Step 1: Get accounts for entity
             System.out.println("  → Fetching accounts for entity: " + entityId);
             AccountService.GetAccountsByEntityResponse accounts =
@@ -86,10 +103,15 @@ public class TransferApp {
             );
 
             System.out.println("  → Sending...");
-            AccountService.TransferEFTRTCResponse resp =
-                transferReq != null
-                    ? accountService.transfer_eft_rtc(transferReq).get(30, TimeUnit.SECONDS)
-                    : null;
+            journal.intent(new PayoutEngine.Eft(transferReq)).get(30, TimeUnit.SECONDS);
+            AccountService.TransferEFTRTCResponse resp;
+            try {
+                resp = accountService.transfer_eft_rtc(transferReq).get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                journal.outcome(clientTxId, null, e.getCause()).get(30, TimeUnit.SECONDS);
+                throw e;
+            }
+            journal.outcome(clientTxId, resp, null).get(30, TimeUnit.SECONDS);
 
             // Save to state
             state.set("last_tx_id", resp.tx_id())
@@ -120,12 +142,8 @@ public class TransferApp {
     }
 
     private static String formatCents(String centsStr) {
-        try {
-            long cents = Long.parseLong(centsStr);
-            return String.format("R %.2f", cents / 100.0);
-        } catch (Exception e) {
-            return centsStr;
-        }
+        long cents = Money.parseCents(centsStr);
+        return cents == Money.INVALID ? centsStr : Money.format(cents);
     }
 
     private static String formatCentsInt(int cents) {
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import client.AccountService;
+import client.CircuitBreakerPolicy;
+import client.Codecs;
+import client.ConcurrencyLimitPolicy;
+import client.RetryPolicy;
+import client.ServiceException;
+
+/**
+ * Append-only write-ahead journal of transfers, keyed by clientTxId.
+ *
+ * A transfer's intent (the full request) is made durable before it is sent,
+ * and its outcome is appended once the server has answered. After a crash,
+ * every intent without an outcome is handed back by pending(), so it can be
+ * re-sent with the same clientTxId rather than a fresh one, and known()
+ * tells which clientTxIds a previous run already sent, settled or not.
+ *
+ * - writes are group-committed: a single writer thread drains everything
+ *   queued since its last flush, writes it, and fsyncs once for the batch
+ * - only final server answers count as outcomes; a timeout, connection
+ *   error or retryable answer (5xx, 429) leaves the intent pending, since
+ *   the transfer may or may not have landed, and so does a call the client
+ *   refused without sending (open circuit breaker, concurrency limit)
+ * - each line carries a CRC32; a torn last line is dropped on open
+ * - on open, the file is compacted to the pending intents plus the outcome
+ *   line of each settled transfer; the settled intents are dropped
+ *
+ * Line format (tab-separated, UTF-8):
+ *
+ *   I  clientTxId  EFT|INTERNAL  request-json  crc
+ *   O  clientTxId  OK|FAILED     tx_id|error   crc
+ */
+public class TransferJournal implements AutoCloseable {
+    private static final int MAX_BATCH = 4096;
+
+    public record Recovery(long entries, int pending, long nanos) {
+        @Override
+        public String toString() {
+            return String.format("%d entries, %d pending, recovered in %.1f ms", entries, pending, nanos / 1e6);
+        }
+    }
+
+    private record Write(byte[] line, CompletableFuture<Void> durable) {}
+
+    private record Span(long offset, int length) {}
+
+    private static final Write CLOSE = new Write(null, null);
+
+    private final FileChannel channel;
+    private final List<PayoutEngine.Instruction> pending;
+    private final Set<String> known;
+    private final Recovery recovery;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile IOException failure;
+
+    private TransferJournal(Path path, List<PayoutEngine.Instruction> pending, Set<String> known,
+            Recovery recovery) throws IOException {
+        this.pending = pending;
+        this.known = known;
+        this.recovery = recovery;
+        this.channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = Thread.ofPlatform()
+            .name("transfer-journal")
+            .daemon()
+            .start(this::writeLoop);
+    }
+
+    /** Opens (or creates) the journal, recovering and compacting what is there. */
+    public static TransferJournal open(Path path) throws IOException {
+        long started = System.nanoTime();
+        // Only where each open intent and each outcome sits is kept; the survivors
+        // are re-read at the end.
+        Map<String, Span> open = new LinkedHashMap<>();
+        Map<String, Span> settled = new LinkedHashMap<>();
+        long entries = 0;
+        long valid = 0;
+
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                LineReader lines = new LineReader(in);
+                byte[] line;
+                while ((line = lines.next()) != null) {
+                    int length = lines.length();
+                    String clientTxId = verify(line, length);
+                    if (clientTxId == null) {
+                        if (lines.atEnd()) {
+                            break;      // torn write from a crash; drop it
+                        }
+                        throw new IOException("Corrupt journal entry at byte " + valid + " of " + path);
+                    }
+                    if (line[0] == 'I') {
+                        open.put(clientTxId, new Span(valid, length));
+                    } else {
+                        open.remove(clientTxId);
+                        settled.put(clientTxId, new Span(valid, length));
+                    }
+                    entries++;
+                    valid += length + 1;
+                }
+            }
+        }
+
+        settled.keySet().removeAll(open.keySet());    // sent again after its outcome
+        List<byte[]> outcomes = read(path, settled.values());
+        List<byte[]> intents = read(path, open.values());
+        if (Files.exists(path) && (outcomes.size() + intents.size() < entries || valid < Files.size(path))) {
+            List<byte[]> lines = new ArrayList<>(outcomes);
+            lines.addAll(intents);
+            compact(path, lines);
+        }
+
+        List<PayoutEngine.Instruction> pending = new ArrayList<>(intents.size());
+        for (byte[] line : intents) {
+            pending.add(decode(line));
+        }
+        Set<String> known = new HashSet<>(settled.keySet());
+        known.addAll(open.keySet());
+        return new TransferJournal(path, List.copyOf(pending), known,
+            new Recovery(entries, pending.size(), System.nanoTime() - started));
+    }
+
+    private static List<byte[]> read(Path path, Collection<Span> spans) throws IOException {
+        List<byte[]> lines = new ArrayList<>(spans.size());
+        if (spans.isEmpty()) {
+            return lines;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Span span : spans) {
+                ByteBuffer line = ByteBuffer.allocate(span.length());
+                while (line.hasRemaining()) {
+                    if (in.read(line, span.offset() + line.position()) < 0) {
+                        throw new IOException("Journal " + path + " changed while it was being recovered");
+                    }
+                }
+                lines.add(line.array());
+            }
+        }
+        return lines;
+    }
+
+    /** Intents left without an outcome by a previous run, oldest first. */
+    public List<PayoutEngine.Instruction> pending() {
+        return pending;
+    }
+
+    /**
+     * Whether a previous run already journaled this clientTxId, pending or
+     * settled. Transfers journaled by this run are not included.
+     */
+    public boolean known(String clientTxId) {
+        return known.contains(clientTxId);
+    }
+
+    public Recovery recovery() {
+        return recovery;
+    }
+
+    /** Records the intent; the future completes once it is on disk. */
+    public CompletableFuture<Void> intent(PayoutEngine.Instruction instruction) {
+        String kind;
+        Object request;
+        switch (instruction) {
+            case PayoutEngine.Eft e -> { kind = "EFT"; request = e.request(); }
+            case PayoutEngine.Internal in -> { kind = "INTERNAL"; request = in.request(); }
+        }
+        String json;
+        try {
+            json = Codecs.shared().writer(request.getClass()).writeValueAsString(request);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return append("I", instruction.clientTxId(), kind, json);
+    }
+
+    /**
+     * Records how a transfer ended. Only a success or a final, non-retryable
+     * server error is an outcome; anything else (timeouts, lost connections,
+     * retryable errors, calls refused client-side) is ignored, which keeps
+     * the intent pending for the next run.
+     */
+    public CompletableFuture<Void> outcome(String clientTxId, AccountService.TransferEFTRTCResponse response,
+            Throwable error) {
+        if (error == null) {
+            return append("O", clientTxId, "OK", response.tx_id());
+        }
+        if (isFinal(error)) {
+            return append("O", clientTxId, "FAILED", error.getMessage());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** A server answer that re-sending the same transfer cannot change. */
+    private static boolean isFinal(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof ServiceException
+            && !(error instanceof CircuitBreakerPolicy.CircuitOpenException)
+            && !(error instanceof ConcurrencyLimitPolicy.LimitExceededException)
+            && !RetryPolicy.isRetryable(error);
+    }
+
+    /** Flushes what is queued and closes the file. */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        queue.add(CLOSE);
+        writer.join();
+        channel.close();
+    }
+
+    private CompletableFuture<Void> append(String type, String clientTxId, String status, String value) {
+        String cleaned = clean(value);
+        StringBuilder line = new StringBuilder(64 + cleaned.length())
+            .append(type).append('\t')
+            .append(clean(clientTxId)).append('\t')
+            .append(status).append('\t')
+            .append(cleaned).append('\t');
+        byte[] head = line.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(head);
+        byte[] tail = (Long.toHexString(crc.getValue()) + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] bytes = Arrays.copyOf(head, head.length + tail.length);
+        System.arraycopy(tail, 0, bytes, head.length, tail.length);
+
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        IOException failed = failure;
+        if (failed != null) {
+            durable.completeExceptionally(failed);
+        } else {
+            queue.add(new Write(bytes, durable));
+        }
+        return durable;
+    }
+
+    private void writeLoop() {
+        List<Write> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH);
+            ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+            int n = 0;
+            for (Write w : batch) {
+                if (w == CLOSE) {
+                    closing = true;
+                } else {
+                    buffers[n++] = ByteBuffer.wrap(w.line());
+                }
+            }
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (n > 0) {
+                    long remaining = 0;
+                    for (int i = 0; i < n; i++) {
+                        remaining += buffers[i].remaining();
+                    }
+                    while (remaining > 0) {
+                        remaining -= channel.write(buffers, 0, n);
+                    }
+                    channel.force(false);
+                }
+                for (Write w : batch) {
+                    if (w != CLOSE) {
+                        w.durable().complete(null);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                for (Write w : batch) {
+                    if (w != CLOSE) {
+                        w.durable().completeExceptionally(e);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /** Checks a line's shape and CRC; returns its clientTxId, or null if the line is damaged. */
+    private static String verify(byte[] line, int length) {
+        if (length < 2 || (line[0] != 'I' && line[0] != 'O') || line[1] != '\t') {
+            return null;
+        }
+        int lastTab = length - 1;
+        while (lastTab > 1 && line[lastTab] != '\t') {
+            lastTab--;
+        }
+        int idEnd = 2;
+        while (idEnd < lastTab && line[idEnd] != '\t') {
+            idEnd++;
+        }
+        if (idEnd >= lastTab) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(line, 0, lastTab + 1);
+        long expected;
+        try {
+            expected = Long.parseUnsignedLong(
+                new String(line, lastTab + 1, length - lastTab - 1, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (expected != crc.getValue()) {
+            return null;
+        }
+        return new String(line, 2, idEnd - 2, StandardCharsets.UTF_8);
+    }
+
+    private static PayoutEngine.Instruction decode(byte[] line) throws IOException {
+        String[] fields = new String(line, StandardCharsets.UTF_8).split("\t", -1);
+        if (fields.length != 5) {
+            throw new IOException("Malformed journal intent for " + fields[1]);
+        }
+        return switch (fields[2]) {
+            case "EFT" -> new PayoutEngine.Eft(
+                Codecs.shared().reader(AccountService.TransferEFTRTCRequest.class).readValue(fields[3]));
+            case "INTERNAL" -> new PayoutEngine.Internal(
+                Codecs.shared().reader(AccountService.TransferInternalRequest.class).readValue(fields[3]));
+            default -> throw new IOException("Unknown transfer kind in journal: " + fields[2]);
+        };
+    }
+
+    /** Rewrites the journal with just the given lines, replacing it atomically. */
+    private static void compact(Path path, Iterable<byte[]> lines) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            for (byte[] line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        try (FileChannel written = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            written.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Tabs and newlines would break the line format; JSON never contains raw ones. */
+    private static String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0
+            ? value
+            : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /** Reads '\n'-terminated lines into a reused buffer. */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] chunk = new byte[1 << 16];
+        private int chunkPos;
+        private int chunkLen;
+        private byte[] line = new byte[1024];
+        private int length;
+        private boolean end;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /** The next line without its '\n' (see length()), or null at end of file. */
+        byte[] next() throws IOException {
+            length = 0;
+            while (true) {
+                if (chunkPos == chunkLen) {
+                    chunkLen = in.read(chunk);
+                    chunkPos = 0;
+                    if (chunkLen <= 0) {
+                        chunkLen = 0;
+                        end = true;
+                        return length == 0 ? null : line;
+                    }
+                }
+                byte b = chunk[chunkPos++];
+                if (b == '\n') {
+                    return line;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+
+        int length() {
+            return length;
+        }
+
+        /** True if the last line returned ran into end of file without a '\n'. */
+        boolean atEnd() throws IOException {
+            if (end) {
+                return true;
+            }
+            if (chunkPos == chunkLen) {
+                chunkLen = Math.max(in.read(chunk), 0);
+                chunkPos = 0;
+                end = chunkLen == 0;
+            }
+            return end;
+        }
+    }
+}
@@ -10,8 +10,11 @@ import org.slf4j.LoggerFactory;
 /**
  * Step B2: Fetch KYB directors, then upload business + director documents.
  *
- * Usage:  ./gradlew run -PmainClass=UploadKybApp
+ * Usage:  ./gradlew run -PmainClass=UploadKybApp [--args="<concurrency>"]
  * Reads:  business_entity_id from state.json (created by Step B1)
+ *
+ * Documents upload one at a time unless a concurrency is given, e.g.
+ * --args="6" keeps up to 6 uploads in flight.
  * Next:   ./gradlew run -PmainClass=SubmitKybApp
  *
  * Place test documents in the tmp/ directory:
@@ -33,6 +36,7 @@ public class UploadKybApp {
 
         State state = State.load();
         String entityId = state.require("business_entity_id");
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1;
 
         System.out.println("  Entity ID: " + entityId);
         System.out.println();
@@ -117,12 +121,12 @@ public class UploadKybApp {
             // Step 3: Upload
             System.out.println("  → Creating KYB dropbox and uploading...");
             KybDocumentUploader uploader = new KybDocumentUploader(
-                client.connection(),
+                client.objectStores(),
                 LoggerFactory.getLogger(KybDocumentUploader.class)
             );
 
             KybDocumentUploader.UploadResult result =
-                uploader.uploadDocuments(entityId, businessDocs, directorDocs);
+                uploader.uploadDocuments(entityId, businessDocs, directorDocs, concurrency);
 
             // Save to state
             state.set("kyb_bucket", result.bucketName());
@@ -37,7 +37,7 @@ public class UploadKycApp {
 
         try (VertexClient client = new VertexClient()) {
             KycDocumentUploader uploader = new KycDocumentUploader(
-                client.connection(),
+                client.objectStores(),
                 LoggerFactory.getLogger(KycDocumentUploader.class)
             );
 
@@ -0,0 +1,120 @@
+import client.AccountService;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures account RPC latency while KYC documents upload.
+ *
+ * Usage:  ./gradlew run -PmainClass=UploadLatencyApp --args="[samples] [upload_rounds]"
+ * Reads:  entity_id and user_id from state.json (Steps 1 and 2)
+ *
+ * Times get_details calls with the connection idle, then again while
+ * upload_rounds uploads of the KYC documents in tmp/ run in the background,
+ * and prints p50/p99/max for both. Run once with OBJECT_STORE_CONNECTION=false
+ * and once with true in .env to see what the dedicated connection buys.
+ * Each round re-uploads the documents under fresh timestamped keys.
+ *
+ * No results are recorded in this repo: the comparison needs a live server,
+ * so the latency gain of OBJECT_STORE_CONNECTION=true is so far unmeasured.
+ */
+public class UploadLatencyApp {
+    public static void main(String[] args) throws Exception {
+        System.out.println();
+        System.out.println("══════════════════════════════════════════");
+        System.out.println("  RPC Latency During Uploads");
+        System.out.println("══════════════════════════════════════════");
+        System.out.println();
+
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds  = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        State state = State.load();
+        String entityId = state.require("entity_id");
+        String userId = state.require("user_id");
+
+        File idFront = new File("tmp/id-front.txt");
+        File proof   = new File("tmp/proof.txt");
+        if (!idFront.exists() && !proof.exists()) {
+            System.err.println("  ✗ No documents found. Place at least tmp/id-front.txt or tmp/proof.txt");
+            return;
+        }
+
+        try (VertexClient client = new VertexClient()) {
+            AccountService accountService = client.accountService();
+            String accountId = accountService.get_by_entity(
+                    new AccountService.GetAccountsByEntityRequest(entityId))
+                .get(30, TimeUnit.SECONDS)
+                .accounts().get(0).account_id();
+            AccountService.GetAccountDetailsRequest probe =
+                new AccountService.GetAccountDetailsRequest(accountId);
+
+            boolean dedicated = client.objectStoreConnection() != client.connection();
+            System.out.println("  Object Store connection: " + (dedicated ? "dedicated" : "shared"));
+            System.out.println("  → Measuring idle latency (" + samples + " calls)...");
+            long[] idle = new long[samples];
+            for (int i = 0; i < samples; i++) {
+                idle[i] = time(accountService, probe);
+            }
+
+            KycDocumentUploader uploader = new KycDocumentUploader(
+                client.objectStores(),
+                LoggerFactory.getLogger(KycDocumentUploader.class)
+            );
+            KycDocumentUploader.KycPayload payload = new KycDocumentUploader.KycPayload() {
+                public String userId() { return userId; }
+                public File frontViewOfTheIdCard() { return idFront.exists() ? idFront : null; }
+                public File backViewOfTheIdCard() { return null; }
+                public File proofOfResidenceDocument() { return proof.exists() ? proof : null; }
+            };
+
+            System.out.println("  → Measuring latency during " + rounds + " upload rounds...");
+            CompletableFuture<Void> uploads = CompletableFuture.runAsync(() -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        uploader.uploadDocuments(payload);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            long[] busy = new long[samples];
+            int taken = 0;
+            while (!uploads.isDone()) {
+                if (taken == busy.length) {
+                    busy = Arrays.copyOf(busy, busy.length * 2);
+                }
+                busy[taken++] = time(accountService, probe);
+            }
+            uploads.join();
+
+            System.out.println();
+            report("idle", idle, idle.length);
+            report("uploading", busy, taken);
+            System.out.println();
+        }
+    }
+
+    private static long time(AccountService accountService, AccountService.GetAccountDetailsRequest req)
+            throws Exception {
+        long start = System.nanoTime();
+        accountService.get_details(req).get(30, TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long[] nanos, int count) {
+        if (count == 0) {
+            System.out.printf("  %-10s no samples%n", label);
+            return;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        System.out.printf("  %-10s n=%-5d p50=%6.1f ms  p99=%6.1f ms  max=%6.1f ms%n",
+            label, count,
+            sorted[(int) (count * 0.50)] / 1e6,
+            sorted[Math.min(count - 1, (int) (count * 0.99))] / 1e6,
+            sorted[count - 1] / 1e6);
+    }
+}
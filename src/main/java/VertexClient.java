@@ -5,61 +5,220 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import client.AccountService;
+import client.CircuitBreakerPolicy;
+import client.CoalescingPolicy;
+import client.Codecs;
+import client.ConcurrencyLimitPolicy;
+import client.ConnectionPool;
 import client.EntityService;
+import client.HedgePolicy;
 import client.KYBService;
+import client.ResponseCache;
+import client.RetryPolicy;
+import client.ServiceOptions;
+import client.TransactionIndex;
 import client.UserService;
 
 /**
  * Shared connection and configuration for all Vertex SDK operations.
  * Reads configuration from .env file.
+ *
+ * By default everything shares a single connection. NATS_POOL_SIZE opens
+ * more shared connections for the services to spread requests over, and
+ * NATS_PIN_SUBJECTS gives each listed subject prefix (e.g. svc.account.,
+ * or $O. for Object Store uploads) a connection of its own.
+ *
+ * OBJECT_STORE_CONNECTION=true opens a separate connection, tuned for bulk
+ * chunk transfer, that only document uploads use. Uploads then stop
+ * queueing ahead of RPCs like transfer_eft_rtc on the shared socket.
+ *
+ * RETRY_ATTEMPTS (e.g. 3) retries transfers that fail transiently
+ * (timeouts, 5xx, 429) with the same clientTxId, up to that many attempts
+ * in total. Off (1 attempt) by default.
+ *
+ * Reads (get_details, entity info, KYB get, user list) can be hedged:
+ * HEDGE_DELAY_MS sends a second request once the first has taken that long,
+ * and HEDGE_PERCENTILE (e.g. 95) instead derives the delay from recent
+ * latencies. Hedging is off unless one of them is set.
+ *
+ * CIRCUIT_BREAKER=true gives each service subject a circuit breaker that
+ * fails calls fast while that subject's backend is mostly timing out or
+ * returning 5xx; state changes are logged to stderr. Off by default.
+ *
+ * CONCURRENCY_LIMIT=queue (or shed) caps the requests in flight to each
+ * service at a limit that adapts to its latency; requests over the limit
+ * wait for a slot (or fail straight away with a 429). Off by default.
+ *
+ * COALESCE_READS=true makes identical get_details and entity info calls
+ * made while one is already in flight share its reply instead of sending
+ * their own request. Off by default.
+ *
+ * RESPONSE_CACHE_SIZE (e.g. 10000) caches up to that many entity info,
+ * accounts-by-entity, user list and KYB replies for a few minutes; the
+ * SDK's own writes to them drop the affected entries. Off by default.
+ *
+ * TRANSACTION_INDEX_SIZE (e.g. 100000) keeps that many transactions from
+ * list replies, so get_transaction for one listed in the last
+ * TRANSACTION_INDEX_MAX_AGE_MS (default 30000) needs no round trip.
+ * Off by default.
+ *
+ * CANONICAL_STRINGS=true decodes large transaction and card lists so that
+ * values repeated across their elements (status, tx_type, user_id, ...)
+ * share one String each, which cuts the heap a long list holds.
  */
 public class VertexClient implements AutoCloseable {
-    private final Connection connection;
+    private final ConnectionPool pool;
     private final Config config;
+    private final Codecs codecs;
+    private final ServiceOptions serviceOptions;
+    private final ObjectStoreCache objectStores;
+
+    // Services are immutable and thread-safe, so one instance of each is shared by all callers.
+    private final EntityService entityService;
+    private final UserService userService;
+    private final AccountService accountService;
+    private final KYBService kybService;
 
     public VertexClient() throws Exception {
         this.config = Config.load();
         this.config.validate();
 
-        Options.Builder builder = new Options.Builder()
-            .server(config.server)
-            .credentialPath(config.credsPath);
-        if (config.openTls) {
-            builder.opentls();
+        List<Connection> opened = new ArrayList<>();
+        try {
+            ConnectionPool.Builder pb = ConnectionPool.builder().strategy(config.poolStrategy);
+            for (int i = 0; i < config.poolSize; i++) {
+                Connection nc = connect("vertex-" + i);
+                opened.add(nc);
+                pb.add(nc);
+            }
+            for (String prefix : config.pinnedSubjects) {
+                Connection nc = connect("vertex-pin-" + prefix);
+                opened.add(nc);
+                pb.pin(prefix, nc);
+            }
+            if (config.objectStoreConnection
+                    && !config.pinnedSubjects.contains(ConnectionPool.OBJECT_STORE)) {
+                Connection nc = Nats.connect(options("vertex-object-store")
+                    // Room for whole 128 KB chunks per write, and a deeper queue so a
+                    // large batch doesn't hit the outgoing-queue limit.
+                    .bufferSize(512 * 1024)
+                    .maxMessagesInOutgoingQueue(20_000)
+                    .connectionTimeout(Duration.ofSeconds(10))
+                    .build());
+                opened.add(nc);
+                pb.pin(ConnectionPool.OBJECT_STORE, nc);
+            }
+            this.pool = pb.build();
+        } catch (Exception e) {
+            for (Connection nc : opened) {
+                nc.close();
+            }
+            throw e;
         }
+        System.out.println("✓ Connected to Vertex API (" + config.server + ")"
+            + (opened.size() > 1 ? " with " + opened.size() + " connections" : ""));
 
-        this.connection = Nats.connect(builder.build());
-        System.out.println("✓ Connected to Vertex API (" + config.server + ")");
-    }
+        this.objectStores = new ObjectStoreCache(objectStoreConnection());
 
-    public Connection connection() { return connection; }
-    public String jwt() { return config.jwt; }
-    public String partnerId() { return config.partnerId; }
+        List<String> subjectParams = List.of(config.partnerId);
+        this.codecs = new Codecs(config.canonicalStrings);
+        this.serviceOptions = ServiceOptions.builder()
+            .codecs(codecs)
+            .retry(config.retryAttempts > 1
+                ? RetryPolicy.builder().maxAttempts(config.retryAttempts).build()
+                : null)
+            .hedge(hedgePolicy(config))
+            .circuitBreaker(config.circuitBreaker
+                ? CircuitBreakerPolicy.builder()
+                    .listener((subject, from, to) ->
+                        System.err.println("Circuit " + subject + ": " + from + " → " + to))
+                    .build()
+                : null)
+            .concurrencyLimit(concurrencyLimitPolicy(config))
+            .coalescing(config.coalesceReads ? CoalescingPolicy.create() : null)
+            .cache(config.responseCacheSize > 0
+                ? ResponseCache.builder().maximumSize(config.responseCacheSize).build()
+                : null)
+            .transactionIndex(config.transactionIndexSize > 0
+                ? TransactionIndex.builder()
+                    .capacity(config.transactionIndexSize)
+                    .maxAge(Duration.ofMillis(config.transactionIndexMaxAgeMs))
+                    .build()
+                : null)
+            .build();
+        this.entityService = new EntityService(pool, config.jwt, subjectParams, serviceOptions);
+        this.userService = new UserService(pool, config.jwt, subjectParams, serviceOptions);
+        this.accountService = new AccountService(pool, config.jwt, subjectParams, serviceOptions);
+        this.kybService = new KYBService(pool, config.jwt, subjectParams, serviceOptions);
+    }
 
-    public EntityService entityService() {
-        return new EntityService(connection, config.jwt, List.of(config.partnerId));
+    private static HedgePolicy hedgePolicy(Config config) {
+        if (config.hedgePercentile > 0) {
+            return HedgePolicy.builder()
+                .delay(Duration.ofMillis(config.hedgeDelayMs > 0 ? config.hedgeDelayMs : 50))
+                .percentile(config.hedgePercentile / 100.0, Duration.ofMillis(1))
+                .build();
+        }
+        if (config.hedgeDelayMs > 0) {
+            return HedgePolicy.builder().delay(Duration.ofMillis(config.hedgeDelayMs)).build();
+        }
+        return null;
     }
 
-    public UserService userService() {
-        return new UserService(connection, config.jwt, List.of(config.partnerId));
+    private static ConcurrencyLimitPolicy concurrencyLimitPolicy(Config config) {
+        return switch (config.concurrencyLimit) {
+            case "queue" -> ConcurrencyLimitPolicy.builder().build();
+            case "shed" -> ConcurrencyLimitPolicy.builder().shed().build();
+            default -> null;
+        };
     }
 
-    public AccountService accountService() {
-        return new AccountService(connection, config.jwt, List.of(config.partnerId));
+    private Connection connect(String name)
+            throws IOException, InterruptedException, NoSuchAlgorithmException {
+        return Nats.connect(options(name).build());
     }
 
-    public KYBService kybService() {
-        return new KYBService(connection, config.jwt, List.of(config.partnerId));
+    private Options.Builder options(String name) throws NoSuchAlgorithmException {
+        Options.Builder builder = new Options.Builder()
+            .server(config.server)
+            .credentialPath(config.credsPath)
+            .connectionName(name);
+        if (config.openTls) {
+            builder.opentls();
+        }
+        return builder;
     }
 
+    /** The primary shared connection. */
+    public Connection connection() { return pool.primary(); }
+    /** Connection for Object Store uploads; a dedicated one when configured. */
+    public Connection objectStoreConnection() { return pool.connectionFor(ConnectionPool.OBJECT_STORE); }
+    /** Bound Object Store handles shared by all uploaders on this client. */
+    public ObjectStoreCache objectStores() { return objectStores; }
+    public ConnectionPool pool() { return pool; }
+    public String jwt() { return config.jwt; }
+    public String partnerId() { return config.partnerId; }
+    public Codecs codecs() { return codecs; }
+    /** Policies shared by the services, including their metrics. */
+    public ServiceOptions serviceOptions() { return serviceOptions; }
+
+    public EntityService entityService() { return entityService; }
+    public UserService userService() { return userService; }
+    public AccountService accountService() { return accountService; }
+    public KYBService kybService() { return kybService; }
+
     @Override
     public void close() throws Exception {
-        connection.close();
+        pool.close();
     }
 
     public static class Config {
@@ -68,6 +227,20 @@ public class VertexClient implements AutoCloseable {
         public String jwt;
         public String partnerId;
         public boolean openTls;
+        public int poolSize;
+        public ConnectionPool.Strategy poolStrategy;
+        public List<String> pinnedSubjects;
+        public boolean objectStoreConnection;
+        public int retryAttempts;
+        public long hedgeDelayMs;
+        public double hedgePercentile;
+        public boolean circuitBreaker;
+        public String concurrencyLimit;
+        public boolean coalesceReads;
+        public int responseCacheSize;
+        public int transactionIndexSize;
+        public long transactionIndexMaxAgeMs;
+        public boolean canonicalStrings;
 
         static Config load() {
             Map<String, String> env = loadEnvFile();
@@ -77,6 +250,25 @@ public class VertexClient implements AutoCloseable {
             cfg.jwt = env.get("JWT");
             cfg.partnerId = env.get("PARTNER_ID");
             cfg.openTls = "true".equalsIgnoreCase(env.get("OPENTLS"));
+            cfg.poolSize = Integer.parseInt(env.getOrDefault("NATS_POOL_SIZE", "1"));
+            cfg.poolStrategy = ConnectionPool.Strategy.valueOf(
+                env.getOrDefault("NATS_POOL_STRATEGY", "round_robin").toUpperCase(Locale.ROOT));
+            cfg.pinnedSubjects = new ArrayList<>();
+            for (String prefix : env.getOrDefault("NATS_PIN_SUBJECTS", "").split(",")) {
+                if (!prefix.isBlank()) cfg.pinnedSubjects.add(prefix.trim());
+            }
+            cfg.objectStoreConnection = "true".equalsIgnoreCase(env.get("OBJECT_STORE_CONNECTION"));
+            cfg.retryAttempts = Integer.parseInt(env.getOrDefault("RETRY_ATTEMPTS", "1"));
+            cfg.hedgeDelayMs = Long.parseLong(env.getOrDefault("HEDGE_DELAY_MS", "0"));
+            cfg.hedgePercentile = Double.parseDouble(env.getOrDefault("HEDGE_PERCENTILE", "0"));
+            cfg.circuitBreaker = "true".equalsIgnoreCase(env.get("CIRCUIT_BREAKER"));
+            cfg.concurrencyLimit = env.getOrDefault("CONCURRENCY_LIMIT", "off").toLowerCase(Locale.ROOT);
+            cfg.coalesceReads = "true".equalsIgnoreCase(env.get("COALESCE_READS"));
+            cfg.responseCacheSize = Integer.parseInt(env.getOrDefault("RESPONSE_CACHE_SIZE", "0"));
+            cfg.transactionIndexSize = Integer.parseInt(env.getOrDefault("TRANSACTION_INDEX_SIZE", "0"));
+            cfg.transactionIndexMaxAgeMs =
+                Long.parseLong(env.getOrDefault("TRANSACTION_INDEX_MAX_AGE_MS", "30000"));
+            cfg.canonicalStrings = "true".equalsIgnoreCase(env.get("CANONICAL_STRINGS"));
             return cfg;
         }
 
@@ -87,6 +279,14 @@ public class VertexClient implements AutoCloseable {
                 throw new IllegalStateException("JWT not set in .env");
             if (partnerId == null || partnerId.isBlank())
                 throw new IllegalStateException("PARTNER_ID not set in .env");
+            if (poolSize < 1)
+                throw new IllegalStateException("NATS_POOL_SIZE must be at least 1");
+            if (retryAttempts < 1)
+                throw new IllegalStateException("RETRY_ATTEMPTS must be at least 1");
+            if (hedgePercentile < 0 || hedgePercentile >= 100)
+                throw new IllegalStateException("HEDGE_PERCENTILE must be between 0 and 100");
+            if (!List.of("off", "queue", "shed").contains(concurrencyLimit))
+                throw new IllegalStateException("CONCURRENCY_LIMIT must be off, queue or shed");
         }
 
         private static Map<String, String> loadEnvFile() {
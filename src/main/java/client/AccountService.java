@@ -1,313 +1,164 @@
 package client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.nats.client.Connection;
-import io.nats.client.impl.Headers;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class AccountService {
 
-  private final Connection nc;
-  private final String token;
-  private final ObjectMapper objectMapper;
-
-  private final List<String> subjectParams;
+  private final RequestEngine.Endpoint<OpenAccountRequest, OpenAccountResponse> create;
+  private final RequestEngine.Endpoint<GetAccountDetailsRequest, GetAccountDetailsResponse>
+      get_details;
+  private final RequestEngine.Endpoint<TransferEFTRTCRequest, TransferEFTRTCResponse>
+      transfer_eft_rtc;
+  private final RequestEngine.Endpoint<TransferInternalRequest, TransferEFTRTCResponse>
+      transfer_internal;
+  private final RequestEngine.Endpoint<GetTransactionsRequest, GetTransactionsResponse> list;
+  private final RequestEngine.Endpoint<GetTransactionsRequest, TransactionCursor> list_stream;
+  private final RequestEngine.Endpoint<GetAccountsByEntityRequest, GetAccountsByEntityResponse>
+      get_by_entity;
+  private final RequestEngine.Endpoint<GetTransactionByIdRequest, GetTransactionByIdResponse>
+      get_transaction;
+  private final TransactionIndex index;
 
   public AccountService(Connection nc, String token, List<String> subjectParams) {
-    if (token == null || token.trim().isEmpty()) {
-      throw new IllegalArgumentException("Token cannot be null or empty");
-    }
-    this.nc = nc;
-    this.token = token;
-    this.objectMapper = new ObjectMapper();
+    this(nc, token, subjectParams, Codecs.shared());
+  }
+
+  public AccountService(Connection nc, String token, List<String> subjectParams, Codecs codecs) {
+    this(ConnectionPool.of(nc), token, subjectParams, codecs);
+  }
 
-    this.subjectParams = subjectParams;
+  public AccountService(
+      ConnectionPool pool, String token, List<String> subjectParams, Codecs codecs) {
+    this(pool, token, subjectParams, ServiceOptions.of(codecs));
+  }
+
+  public AccountService(
+      ConnectionPool pool, String token, List<String> subjectParams, ServiceOptions options) {
+    this.index = options.transactionIndex();
+    RequestEngine engine =
+        new RequestEngine(pool, token, subjectParams, options, JsonInclude.Include.USE_DEFAULTS);
+
+    this.create =
+        engine
+            .endpoint("svc.account.*.create", OpenAccountRequest.class, OpenAccountResponse.class)
+            .invalidates("svc.account.*.get_by_entity");
+    this.get_details =
+        engine.endpoint(
+            "svc.account.*.get_details",
+            GetAccountDetailsRequest.class,
+            GetAccountDetailsResponse.class)
+            .hedged()
+            .coalesced();
+    this.transfer_eft_rtc =
+        engine.endpoint(
+            "svc.account.*.transfer_eft_rtc",
+            TransferEFTRTCRequest.class,
+            TransferEFTRTCResponse.class)
+            .retryable();
+    this.transfer_internal =
+        engine.endpoint(
+            "svc.account.*.transfer_internal",
+            TransferInternalRequest.class,
+            TransferEFTRTCResponse.class)
+            .retryable();
+    this.list =
+        engine.endpoint(
+            "svc.account.*.list", GetTransactionsRequest.class, GetTransactionsResponse.class);
+    this.list_stream =
+        engine.endpoint(
+            "svc.account.*.list",
+            GetTransactionsRequest.class,
+            data -> {
+              Codecs codecs = engine.codecs();
+              return TransactionCursor.open(codecs.parser(data), codecs.strings());
+            });
+    this.get_by_entity =
+        engine.endpoint(
+            "svc.account.*.get_by_entity",
+            GetAccountsByEntityRequest.class,
+            GetAccountsByEntityResponse.class)
+            .cached(Duration.ofMinutes(5));
+    this.get_transaction =
+        engine.endpoint(
+            "svc.account.*.get_transaction",
+            GetTransactionByIdRequest.class,
+            GetTransactionByIdResponse.class);
   }
 
   public CompletableFuture<OpenAccountResponse> create(OpenAccountRequest req) {
-    String ep = "svc.account.*.create";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.create");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), OpenAccountResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.create.request(req);
   }
 
   public CompletableFuture<GetAccountDetailsResponse> get_details(GetAccountDetailsRequest req) {
-    String ep = "svc.account.*.get_details";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.get_details");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), GetAccountDetailsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.get_details.request(req);
   }
 
+  /**
+   * Sends an EFT/RTC transfer. Transient failures are retried with the same {@code clientTxId}
+   * when the service was built with a {@link RetryPolicy}.
+   */
   public CompletableFuture<TransferEFTRTCResponse> transfer_eft_rtc(TransferEFTRTCRequest req) {
-    String ep = "svc.account.*.transfer_eft_rtc";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.transfer_eft_rtc");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), TransferEFTRTCResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.transfer_eft_rtc.request(req);
   }
 
+  /** Sends an internal transfer; retried like {@link #transfer_eft_rtc}. */
   public CompletableFuture<TransferEFTRTCResponse> transfer_internal(TransferInternalRequest req) {
-    String ep = "svc.account.*.transfer_internal";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.transfer_internal");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), TransferEFTRTCResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.transfer_internal.request(req);
   }
 
+  /** Lists an account's transactions, adding them to the {@link TransactionIndex}, if any. */
   public CompletableFuture<GetTransactionsResponse> list(GetTransactionsRequest req) {
-    String ep = "svc.account.*.list";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.list");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), GetTransactionsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
+    if (this.index == null) {
+      return this.list.request(req);
     }
+    return this.list
+        .request(req)
+        .thenApply(
+            resp -> {
+              if (resp.transactions() != null) {
+                this.index.putAll(resp.transactions());
+              }
+              return resp;
+            });
+  }
+
+  /**
+   * Same call as {@link #list}, but the reply is read incrementally through a {@link
+   * TransactionCursor} instead of being materialised as one list.
+   */
+  public CompletableFuture<TransactionCursor> list_stream(GetTransactionsRequest req) {
+    return this.list_stream.request(req);
   }
 
   public CompletableFuture<GetAccountsByEntityResponse> get_by_entity(
       GetAccountsByEntityRequest req) {
-    String ep = "svc.account.*.get_by_entity";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.get_by_entity");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), GetAccountsByEntityResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.get_by_entity.request(req);
   }
 
+  /**
+   * Fetches one transaction, or answers from the {@link TransactionIndex}, if any, when an earlier
+   * {@link #list} returned it recently enough.
+   */
   public CompletableFuture<GetTransactionByIdResponse> get_transaction(
       GetTransactionByIdRequest req) {
-    String ep = "svc.account.*.get_transaction";
-
-    StringBuilder epBuilder = new StringBuilder("svc.account.*.get_transaction");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
+    if (this.index == null) {
+      return this.get_transaction.request(req);
     }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), GetTransactionByIdResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
+    Transaction indexed = this.index.get(req.tx_id());
+    if (indexed != null) {
+      return CompletableFuture.completedFuture(new GetTransactionByIdResponse(indexed));
     }
+    return this.get_transaction
+        .request(req)
+        .thenApply(
+            resp -> {
+              this.index.put(resp.transaction());
+              return resp;
+            });
   }
 
   // Generated Types
@@ -1,394 +1,114 @@
 package client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.nats.client.Connection;
-import io.nats.client.impl.Headers;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class CardService {
 
-  private final Connection nc;
-  private final String token;
-  private final ObjectMapper objectMapper;
-
-  private final List<String> subjectParams;
+  private final RequestEngine.Endpoint<RequestCardRequest, RequestCardResponse> request;
+  private final RequestEngine.Endpoint<
+          ListOrganisationCardRequestsRequest, ListOrganisationCardRequestsResponse>
+      list_requests;
+  private final RequestEngine.Endpoint<RespondToCardRequestRequest, RespondToCardRequestResponse>
+      respond_to_request;
+  private final RequestEngine.Endpoint<EditCardRequest, EditCardResponse> edit;
+  private final RequestEngine.Endpoint<ListOrganisationCardsRequest, ListOrganisationCardsResponse>
+      list_cards;
+  private final RequestEngine.Endpoint<GetCardDetailsRequest, GetCardDetailsResponse> get_details;
+  private final RequestEngine.Endpoint<UpdateCardStatusRequest, UpdateCardStatusResponse>
+      update_status;
+  private final RequestEngine.Endpoint<ActivateCardRequest, ActivateCardResponse> activate_card;
+  private final RequestEngine.Endpoint<SetPINRequest, SetPINResponse> set_pin;
 
   public CardService(Connection nc, String token, List<String> subjectParams) {
-    if (token == null || token.trim().isEmpty()) {
-      throw new IllegalArgumentException("Token cannot be null or empty");
-    }
-    this.nc = nc;
-    this.token = token;
-    this.objectMapper = new ObjectMapper();
-
-    this.subjectParams = subjectParams;
+    this(nc, token, subjectParams, Codecs.shared());
+  }
+
+  public CardService(Connection nc, String token, List<String> subjectParams, Codecs codecs) {
+    this(ConnectionPool.of(nc), token, subjectParams, codecs);
+  }
+
+  public CardService(
+      ConnectionPool pool, String token, List<String> subjectParams, Codecs codecs) {
+    this(pool, token, subjectParams, ServiceOptions.of(codecs));
+  }
+
+  public CardService(
+      ConnectionPool pool, String token, List<String> subjectParams, ServiceOptions options) {
+    RequestEngine engine =
+        new RequestEngine(pool, token, subjectParams, options, JsonInclude.Include.USE_DEFAULTS);
+
+    this.request =
+        engine.endpoint("svc.card.*.request", RequestCardRequest.class, RequestCardResponse.class);
+    this.list_requests =
+        engine.endpoint(
+            "svc.card.*.list_requests",
+            ListOrganisationCardRequestsRequest.class,
+            ListOrganisationCardRequestsResponse.class);
+    this.respond_to_request =
+        engine.endpoint(
+            "svc.card.*.respond_to_request",
+            RespondToCardRequestRequest.class,
+            RespondToCardRequestResponse.class);
+    this.edit = engine.endpoint("svc.card.*.edit", EditCardRequest.class, EditCardResponse.class);
+    this.list_cards =
+        engine.endpoint(
+            "svc.card.*.list_cards",
+            ListOrganisationCardsRequest.class,
+            ListOrganisationCardsResponse.class);
+    this.get_details =
+        engine.endpoint(
+            "svc.card.*.get_details", GetCardDetailsRequest.class, GetCardDetailsResponse.class);
+    this.update_status =
+        engine.endpoint(
+            "svc.card.*.update_status",
+            UpdateCardStatusRequest.class,
+            UpdateCardStatusResponse.class);
+    this.activate_card =
+        engine.endpoint(
+            "svc.card.*.activate_card", ActivateCardRequest.class, ActivateCardResponse.class);
+    this.set_pin = engine.endpoint("svc.card.*.set_pin", SetPINRequest.class, SetPINResponse.class);
   }
 
   public CompletableFuture<RequestCardResponse> request(RequestCardRequest req) {
-    String ep = "svc.card.*.request";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.request");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), RequestCardResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.request.request(req);
   }
 
   public CompletableFuture<ListOrganisationCardRequestsResponse> list_requests(
       ListOrganisationCardRequestsRequest req) {
-    String ep = "svc.card.*.list_requests";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.list_requests");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), ListOrganisationCardRequestsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.list_requests.request(req);
   }
 
   public CompletableFuture<RespondToCardRequestResponse> respond_to_request(
       RespondToCardRequestRequest req) {
-    String ep = "svc.card.*.respond_to_request";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.respond_to_request");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), RespondToCardRequestResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.respond_to_request.request(req);
   }
 
   public CompletableFuture<EditCardResponse> edit(EditCardRequest req) {
-    String ep = "svc.card.*.edit";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.edit");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), EditCardResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.edit.request(req);
   }
 
   public CompletableFuture<ListOrganisationCardsResponse> list_cards(
       ListOrganisationCardsRequest req) {
-    String ep = "svc.card.*.list_cards";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.list_cards");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), ListOrganisationCardsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.list_cards.request(req);
   }
 
   public CompletableFuture<GetCardDetailsResponse> get_details(GetCardDetailsRequest req) {
-    String ep = "svc.card.*.get_details";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.get_details");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), GetCardDetailsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.get_details.request(req);
   }
 
   public CompletableFuture<UpdateCardStatusResponse> update_status(UpdateCardStatusRequest req) {
-    String ep = "svc.card.*.update_status";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.update_status");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), UpdateCardStatusResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.update_status.request(req);
   }
 
   public CompletableFuture<ActivateCardResponse> activate_card(ActivateCardRequest req) {
-    String ep = "svc.card.*.activate_card";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.activate_card");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), ActivateCardResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.activate_card.request(req);
   }
 
   public CompletableFuture<SetPINResponse> set_pin(SetPINRequest req) {
-    String ep = "svc.card.*.set_pin";
-
-    StringBuilder epBuilder = new StringBuilder("svc.card.*.set_pin");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), SetPINResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.set_pin.request(req);
   }
 
   // Generated Types
@@ -0,0 +1,338 @@
+package client;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breakers, one per resolved subject ({@code svc.<service>.<partner>.<method>}).
+ *
+ * <p>Each breaker tracks the failure rate of its subject over a rolling time window. Once the
+ * window holds at least a minimum number of calls (20 by default) and at least a given share of
+ * them failed (50% by default), the breaker opens and calls to that subject fail straight away with
+ * a {@link CircuitOpenException} instead of waiting out the NATS timeout. After the open
+ * period a few probe calls are let through (half-open): if they all succeed the breaker closes,
+ * and if any fails it opens again. Other subjects are unaffected.
+ *
+ * <p>Only backend trouble counts as failure: timeouts, lost connections and the {@link
+ * ServiceException} codes {@link RetryPolicy#isRetryable} treats as transient. A 4xx answer means
+ * the service is up.
+ */
+public final class CircuitBreakerPolicy {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  /**
+   * Notified of every state change, in order and outside the breaker's lock, on the thread whose
+   * call caused it or on one delivering an earlier change for the same subject; keep it short.
+   */
+  public interface Listener {
+    void onTransition(String subject, State from, State to);
+  }
+
+  /** Per-subject counters since the policy was built. */
+  public record Metrics(State state, long opened, long halfOpened, long closed, long rejected) {}
+
+  private final int buckets;
+  private final long bucketNanos;
+  private final int minimumCalls;
+  private final double failureRate;
+  private final long openNanos;
+  private final int probes;
+  private final Listener listener;
+  private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+  private CircuitBreakerPolicy(Builder builder) {
+    this.buckets = builder.buckets;
+    this.bucketNanos = Math.max(1, builder.window.toNanos() / builder.buckets);
+    this.minimumCalls = builder.minimumCalls;
+    this.failureRate = builder.failureRate;
+    this.openNanos = builder.openDuration.toNanos();
+    this.probes = builder.probes;
+    this.listener = builder.listener;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Counters for every subject that has been called, by subject. */
+  public Map<String, Metrics> metrics() {
+    Map<String, Metrics> metrics = new TreeMap<>();
+    this.breakers.forEach((subject, breaker) -> metrics.put(subject, breaker.metrics()));
+    return metrics;
+  }
+
+  public State state(String subject) {
+    Breaker breaker = this.breakers.get(subject);
+    return breaker == null ? State.CLOSED : breaker.metrics().state();
+  }
+
+  /** The breaker for {@code subject}; endpoints sharing a subject share it. */
+  Breaker breaker(String subject) {
+    return this.breakers.computeIfAbsent(subject, Breaker::new);
+  }
+
+  /** Fast-fail raised while a subject's breaker is open. Not retried by {@link RetryPolicy}. */
+  public static final class CircuitOpenException extends ServiceException {
+    public CircuitOpenException(String subject) {
+      super("Circuit open for " + subject, 503);
+    }
+  }
+
+  final class Breaker {
+    private static final int REJECTED = 0;
+    private static final int CALL = 1;
+    private static final int PROBE = 2;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final String subject;
+    private final long[] bucketEpoch = new long[CircuitBreakerPolicy.this.buckets];
+    private final int[] bucketCalls = new int[CircuitBreakerPolicy.this.buckets];
+    private final int[] bucketFailures = new int[CircuitBreakerPolicy.this.buckets];
+    /** Changes not yet passed to the listener, as from/to pairs. */
+    private final ArrayDeque<State> transitions = new ArrayDeque<>();
+    private boolean announcing;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long opened;
+    private long halfOpened;
+    private long closed;
+    private long rejected;
+
+    private Breaker(String subject) {
+      this.subject = subject;
+      Arrays.fill(this.bucketEpoch, EMPTY);
+    }
+
+    <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+      int permit = acquire(System.nanoTime());
+      announce();
+      if (permit == REJECTED) {
+        return CompletableFuture.failedFuture(new CircuitOpenException(this.subject));
+      }
+      CompletableFuture<T> reply;
+      try {
+        reply = call.get();
+      } catch (RuntimeException e) {
+        reply = CompletableFuture.failedFuture(e);
+      }
+      CompletableFuture<T> sent = reply;
+      sent.whenComplete(
+          (value, error) -> {
+            if (sent.isCancelled()) {
+              // Cancelled by the caller (e.g. a hedge that lost), which says nothing about health.
+              release(permit == PROBE);
+            } else {
+              record(
+                  permit == PROBE,
+                  error != null && RetryPolicy.isRetryable(error),
+                  System.nanoTime());
+              announce();
+            }
+          });
+      return sent;
+    }
+
+    private synchronized void release(boolean probe) {
+      if (probe && this.state == State.HALF_OPEN) {
+        this.probesInFlight--;
+      }
+    }
+
+    private synchronized int acquire(long now) {
+      if (this.state == State.OPEN) {
+        if (now - this.openedAt < CircuitBreakerPolicy.this.openNanos) {
+          this.rejected++;
+          return REJECTED;
+        }
+        this.halfOpened++;
+        this.probesInFlight = 0;
+        this.probeSuccesses = 0;
+        transition(State.HALF_OPEN);
+      }
+      if (this.state == State.HALF_OPEN) {
+        if (this.probesInFlight >= CircuitBreakerPolicy.this.probes) {
+          this.rejected++;
+          return REJECTED;
+        }
+        this.probesInFlight++;
+        return PROBE;
+      }
+      return CALL;
+    }
+
+    private synchronized void record(boolean probe, boolean failed, long now) {
+      if (probe) {
+        if (this.state != State.HALF_OPEN) {
+          return;
+        }
+        this.probesInFlight--;
+        if (failed) {
+          open(now);
+        } else if (++this.probeSuccesses >= CircuitBreakerPolicy.this.probes) {
+          Arrays.fill(this.bucketEpoch, EMPTY);
+          this.closed++;
+          transition(State.CLOSED);
+        }
+        return;
+      }
+      if (this.state != State.CLOSED) {
+        return; // a call from before the breaker opened
+      }
+
+      long epoch = now / CircuitBreakerPolicy.this.bucketNanos;
+      int i = (int) Math.floorMod(epoch, (long) CircuitBreakerPolicy.this.buckets);
+      if (this.bucketEpoch[i] != epoch) {
+        this.bucketEpoch[i] = epoch;
+        this.bucketCalls[i] = 0;
+        this.bucketFailures[i] = 0;
+      }
+      this.bucketCalls[i]++;
+      if (!failed) {
+        return;
+      }
+      this.bucketFailures[i]++;
+
+      int calls = 0;
+      int failures = 0;
+      for (int b = 0; b < CircuitBreakerPolicy.this.buckets; b++) {
+        if (this.bucketEpoch[b] != EMPTY
+            && epoch - this.bucketEpoch[b] < CircuitBreakerPolicy.this.buckets) {
+          calls += this.bucketCalls[b];
+          failures += this.bucketFailures[b];
+        }
+      }
+      if (calls >= CircuitBreakerPolicy.this.minimumCalls
+          && failures >= calls * CircuitBreakerPolicy.this.failureRate) {
+        open(now);
+      }
+    }
+
+    private void open(long now) {
+      this.openedAt = now;
+      this.opened++;
+      transition(State.OPEN);
+    }
+
+    /** Called holding the lock; the listener hears of it from {@link #announce}. */
+    private void transition(State to) {
+      if (CircuitBreakerPolicy.this.listener != null) {
+        this.transitions.add(this.state);
+        this.transitions.add(to);
+      }
+      this.state = to;
+    }
+
+    /**
+     * Passes queued changes to the listener without holding the lock, so a slow listener does not
+     * stall calls. One thread at a time delivers them, which keeps them in order.
+     */
+    private void announce() {
+      Listener listener = CircuitBreakerPolicy.this.listener;
+      if (listener == null) {
+        return;
+      }
+      synchronized (this) {
+        if (this.announcing || this.transitions.isEmpty()) {
+          return;
+        }
+        this.announcing = true;
+      }
+      boolean delivered = false;
+      try {
+        while (true) {
+          State from;
+          State to;
+          synchronized (this) {
+            if (this.transitions.isEmpty()) {
+              this.announcing = false;
+              delivered = true;
+              return;
+            }
+            from = this.transitions.poll();
+            to = this.transitions.poll();
+          }
+          listener.onTransition(this.subject, from, to);
+        }
+      } finally {
+        if (!delivered) {
+          synchronized (this) {
+            this.announcing = false; // the listener threw; the next call carries on
+          }
+        }
+      }
+    }
+
+    private synchronized Metrics metrics() {
+      return new Metrics(this.state, this.opened, this.halfOpened, this.closed, this.rejected);
+    }
+  }
+
+  public static final class Builder {
+    private Duration window = Duration.ofSeconds(10);
+    private int buckets = 10;
+    private int minimumCalls = 20;
+    private double failureRate = 0.5;
+    private Duration openDuration = Duration.ofSeconds(5);
+    private int probes = 3;
+    private Listener listener;
+
+    private Builder() {}
+
+    /** Rolling window the failure rate is measured over, split into {@code buckets} slices. */
+    public Builder window(Duration window, int buckets) {
+      if (buckets < 1) {
+        throw new IllegalArgumentException("buckets must be at least 1");
+      }
+      this.window = window;
+      this.buckets = buckets;
+      return this;
+    }
+
+    /**
+     * Opens once the window holds at least {@code minimumCalls} calls and at least {@code rate} of
+     * them failed.
+     */
+    public Builder threshold(double rate, int minimumCalls) {
+      if (!(rate > 0 && rate <= 1)) {
+        throw new IllegalArgumentException("rate must be in (0, 1]");
+      }
+      this.failureRate = rate;
+      this.minimumCalls = minimumCalls;
+      return this;
+    }
+
+    /** How long calls fail fast before probing, and how many probes must succeed to close. */
+    public Builder open(Duration openDuration, int probes) {
+      if (probes < 1) {
+        throw new IllegalArgumentException("probes must be at least 1");
+      }
+      this.openDuration = openDuration;
+      this.probes = probes;
+      return this;
+    }
+
+    public Builder listener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    public CircuitBreakerPolicy build() {
+      return new CircuitBreakerPolicy(this);
+    }
+  }
+}
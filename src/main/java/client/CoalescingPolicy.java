@@ -0,0 +1,137 @@
+package client;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical concurrent reads.
+ *
+ * <p>While a request is in flight, another call to the same subject with byte-for-byte the same
+ * payload does not send a request of its own: it waits for the one in flight and gets the same
+ * reply, or the same error. Once that reply arrives the next call sends again, so nothing is
+ * cached beyond the round trip.
+ *
+ * <p>Every caller gets its own future. Cancelling it detaches only that caller; the shared request
+ * is cancelled once every caller waiting on it has cancelled.
+ *
+ * <p>Only reads are coalesced (see {@code RequestEngine.Endpoint#coalesced}). A read that starts
+ * while an identical one is in flight may get a reply the backend produced just before a write the
+ * caller has since seen acknowledged.
+ */
+public final class CoalescingPolicy {
+
+  private final ConcurrentMap<Key, Flight<?>> flights = new ConcurrentHashMap<>();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  private CoalescingPolicy() {}
+
+  public static CoalescingPolicy create() {
+    return new CoalescingPolicy();
+  }
+
+  /** Counters since the policy was created; {@code coalesced} calls sent no request. */
+  public record Metrics(long calls, long coalesced) {}
+
+  public Metrics metrics() {
+    return new Metrics(this.calls.sum(), this.coalesced.sum());
+  }
+
+  private record Key(String subject, ByteBuffer payload) {}
+
+  /** Joins the request in flight for {@code subject} and {@code payload}, or sends one. */
+  @SuppressWarnings("unchecked")
+  <T> CompletableFuture<T> execute(
+      String subject, byte[] payload, Supplier<CompletableFuture<T>> request) {
+    this.calls.increment();
+    Key key = new Key(subject, ByteBuffer.wrap(payload));
+    while (true) {
+      Flight<T> created = new Flight<>(key);
+      Flight<T> flight = (Flight<T>) this.flights.putIfAbsent(key, created);
+      if (flight == null) {
+        CompletableFuture<T> waiter = created.waiter();
+        created.send(request);
+        return waiter;
+      }
+      if (flight.join()) {
+        this.coalesced.increment();
+        return flight.waiter();
+      }
+      this.flights.remove(key, flight); // finished or abandoned; start a new one
+    }
+  }
+
+  private final class Flight<T> {
+    private final Key key;
+    private final CompletableFuture<T> shared = new CompletableFuture<>();
+    private int waiters = 1;
+    private boolean closed;
+
+    private Flight(Key key) {
+      this.key = key;
+      this.shared.whenComplete((value, error) -> CoalescingPolicy.this.flights.remove(key, this));
+    }
+
+    private void send(Supplier<CompletableFuture<T>> request) {
+      CompletableFuture<T> reply;
+      try {
+        reply = request.get();
+      } catch (RuntimeException e) {
+        reply = CompletableFuture.failedFuture(e);
+      }
+      CompletableFuture<T> sent = reply;
+      this.shared.whenComplete((value, error) -> sent.cancel(false));
+      sent.whenComplete(
+          (value, error) -> {
+            if (error == null) {
+              this.shared.complete(value);
+            } else {
+              this.shared.completeExceptionally(error);
+            }
+          });
+    }
+
+    /** Adds a waiter, unless the reply is already in or every waiter has left. */
+    private synchronized boolean join() {
+      if (this.closed || this.shared.isDone()) {
+        return false;
+      }
+      this.waiters++;
+      return true;
+    }
+
+    private CompletableFuture<T> waiter() {
+      CompletableFuture<T> waiter = new CompletableFuture<>();
+      this.shared.whenComplete(
+          (value, error) -> {
+            if (error == null) {
+              waiter.complete(value);
+            } else {
+              waiter.completeExceptionally(error);
+            }
+          });
+      waiter.whenComplete(
+          (value, error) -> {
+            if (waiter.isCancelled()) {
+              leave();
+            }
+          });
+      return waiter;
+    }
+
+    private void leave() {
+      synchronized (this) {
+        if (--this.waiters > 0) {
+          return;
+        }
+        this.closed = true;
+      }
+      CoalescingPolicy.this.flights.remove(this.key, this);
+      this.shared.cancel(false);
+    }
+  }
+}
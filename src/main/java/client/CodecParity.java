@@ -0,0 +1,181 @@
+package client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Checks the streaming decoders of a {@link Codecs} registry against Jackson's record binding.
+ *
+ * <p>The decoders in {@link RecordCodecs} are written by hand, so nothing ties their field lists to
+ * the record declarations. For every type with a streaming decoder, {@link #check} builds one
+ * instance with every component set (nested records and list elements included) and one with
+ * every component at its default, writes each with Jackson, and decodes the bytes with both the
+ * streaming decoder and Jackson's reader: the two results must be equal. It then adds a field that
+ * no record declares to each JSON object in turn, which both decoders must reject. A field missing
+ * from a decoder shows up as a rejected or differing decode, an extra one as a field accepted.
+ */
+public final class CodecParity {
+
+  private static final String UNKNOWN_FIELD = "__codec_parity__";
+
+  private CodecParity() {}
+
+  /** Describes every disagreement between the two decoders; empty if there is none. */
+  public static List<String> check(Codecs codecs) {
+    List<String> problems = new ArrayList<>();
+    ObjectMapper mapper = new ObjectMapper();
+    for (Class<?> type : codecs.streamingTypes()) {
+      try {
+        for (Object sample : List.of(sample(type, new int[1]), empty(type))) {
+          byte[] json = codecs.writer(type).writeValueAsBytes(sample);
+          compare(codecs, type, json, problems);
+          JsonNode tree = mapper.readTree(json);
+          List<ObjectNode> objects = new ArrayList<>();
+          collect(tree, objects);
+          for (ObjectNode object : objects) {
+            object.put(UNKNOWN_FIELD, 1);
+            rejects(codecs, type, mapper.writeValueAsBytes(tree), problems);
+            object.remove(UNKNOWN_FIELD);
+          }
+        }
+      } catch (ReflectiveOperationException | IOException | IllegalArgumentException e) {
+        problems.add(type.getName() + ": could not build a sample: " + e);
+      }
+    }
+    return problems;
+  }
+
+  private static void compare(Codecs codecs, Class<?> type, byte[] json, List<String> problems) {
+    Object jackson;
+    try {
+      jackson = codecs.reader(type).readValue(json);
+    } catch (IOException e) {
+      problems.add(type.getName() + ": Jackson rejects its own output: " + e.getMessage());
+      return;
+    }
+    try {
+      Object streamed = codecs.decoder(type).decode(json);
+      if (!Objects.equals(jackson, streamed)) {
+        problems.add(
+            type.getName()
+                + ": decoders differ\n  jackson:   "
+                + jackson
+                + "\n  streaming: "
+                + streamed);
+      }
+    } catch (IOException | RuntimeException e) {
+      problems.add(type.getName() + ": streaming decoder rejects " + new String(json) + ": " + e);
+    }
+  }
+
+  private static void rejects(Codecs codecs, Class<?> type, byte[] json, List<String> problems) {
+    boolean jackson = decodes(() -> codecs.reader(type).readValue(json));
+    boolean streamed = decodes(() -> codecs.decoder(type).decode(json));
+    if (jackson != streamed) {
+      problems.add(
+          type.getName()
+              + ": unknown field accepted by "
+              + (jackson ? "Jackson" : "the streaming decoder")
+              + " only, in "
+              + new String(json));
+    }
+  }
+
+  private interface Decode {
+    Object run() throws IOException;
+  }
+
+  private static boolean decodes(Decode decode) {
+    try {
+      decode.run();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static void collect(JsonNode node, List<ObjectNode> objects) {
+    if (node instanceof ObjectNode object) {
+      objects.add(object);
+    }
+    node.forEach(child -> collect(child, objects));
+  }
+
+  /** An instance of record {@code type} with every component set; {@code next} numbers values. */
+  private static Object sample(Class<?> type, int[] next) throws ReflectiveOperationException {
+    RecordComponent[] components = type.getRecordComponents();
+    Object[] values = new Object[components.length];
+    for (int i = 0; i < components.length; i++) {
+      values[i] = value(components[i].getGenericType(), next);
+    }
+    return canonical(type, components).newInstance(values);
+  }
+
+  /** An instance of record {@code type} with every component null, zero or false. */
+  private static Object empty(Class<?> type) throws ReflectiveOperationException {
+    RecordComponent[] components = type.getRecordComponents();
+    Object[] values = new Object[components.length];
+    for (int i = 0; i < components.length; i++) {
+      Class<?> raw = components[i].getType();
+      if (raw == boolean.class) {
+        values[i] = false;
+      } else if (raw == int.class) {
+        values[i] = 0;
+      } else if (raw == long.class) {
+        values[i] = 0L;
+      } else if (raw == double.class) {
+        values[i] = 0.0;
+      }
+    }
+    return canonical(type, components).newInstance(values);
+  }
+
+  private static Object value(Type type, int[] next) throws ReflectiveOperationException {
+    int n = ++next[0];
+    if (type instanceof ParameterizedType generic) {
+      Class<?> raw = (Class<?>) generic.getRawType();
+      if (raw == List.class) {
+        Type element = generic.getActualTypeArguments()[0];
+        return List.of(value(element, next), value(element, next));
+      }
+      if (raw == Map.class) {
+        return Map.of("key" + n, "value" + n);
+      }
+      throw new IllegalArgumentException("no sample for " + type);
+    }
+    Class<?> raw = (Class<?>) type;
+    if (raw == String.class) {
+      return "value" + n;
+    } else if (raw == boolean.class || raw == Boolean.class) {
+      return true;
+    } else if (raw == int.class || raw == Integer.class) {
+      return n;
+    } else if (raw == long.class || raw == Long.class) {
+      return (long) n;
+    } else if (raw == double.class || raw == Double.class) {
+      return n + 0.5;
+    } else if (raw.isRecord()) {
+      return sample(raw, next);
+    }
+    throw new IllegalArgumentException("no sample for " + type);
+  }
+
+  private static Constructor<?> canonical(Class<?> type, RecordComponent[] components)
+      throws NoSuchMethodException {
+    Class<?>[] types = new Class<?>[components.length];
+    for (int i = 0; i < components.length; i++) {
+      types[i] = components[i].getType();
+    }
+    return type.getDeclaredConstructor(types);
+  }
+}
@@ -0,0 +1,135 @@
+package client;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of Jackson readers and writers shared by all services.
+ *
+ * <p>Building an {@link ObjectMapper} per service throws away Jackson's (de)serializer caches, so
+ * every new service paid record introspection again. A registry keeps one mapper per inclusion
+ * setting and hands out the same {@link ObjectReader}/{@link ObjectWriter} for a type to every
+ * service bound to it. Readers and writers are immutable and safe to share across threads.
+ *
+ * <p>Response types with a hand-written streaming decoder (see {@link RecordCodecs}) bypass
+ * Jackson's reflective record binding entirely; {@link #decoder(Class)} picks whichever applies.
+ * {@link CodecParity} checks that both decode the same bytes to the same records.
+ *
+ * <p>A registry built with {@code canonicalStrings} also makes those decoders share one instance of
+ * each repeated value of the list fields that repeat most, such as a transaction's {@code status},
+ * {@code tx_type} or {@code user_id}, instead of allocating a string per element.
+ */
+public final class Codecs {
+
+  private static final Codecs SHARED = new Codecs();
+
+  private final ConcurrentMap<JsonInclude.Include, ObjectMapper> mappers =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<WriterKey, ObjectWriter> writers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, StreamDecoder<?>> streamDecoders =
+      new ConcurrentHashMap<>();
+  private final RecordCodecs.Strings strings;
+
+  public Codecs() {
+    this(false);
+  }
+
+  /**
+   * @param canonicalStrings read repeated list fields through bounded per-field tables of shared
+   *     values, trading a hash and compare per value for far fewer strings retained
+   */
+  public Codecs(boolean canonicalStrings) {
+    this.strings = canonicalStrings ? new RecordCodecs.Strings(true) : RecordCodecs.Strings.NONE;
+    RecordCodecs.registerAll(this);
+  }
+
+  /** Process-wide registry, used by services constructed without an explicit one. */
+  public static Codecs shared() {
+    return SHARED;
+  }
+
+  public ObjectReader reader(Class<?> type) {
+    return this.readers.computeIfAbsent(
+        type, t -> mapper(JsonInclude.Include.USE_DEFAULTS).readerFor(t));
+  }
+
+  public ObjectWriter writer(Class<?> type) {
+    return writer(type, JsonInclude.Include.USE_DEFAULTS);
+  }
+
+  /** Writer for {@code type} whose mapper applies {@code inclusion} as its serialization rule. */
+  public ObjectWriter writer(Class<?> type, JsonInclude.Include inclusion) {
+    return this.writers.computeIfAbsent(
+        new WriterKey(type, inclusion), k -> mapper(k.inclusion()).writerFor(k.type()));
+  }
+
+  /** Registers a streaming decoder, used in place of Jackson binding for {@code type}. */
+  public <T> void register(Class<T> type, StreamDecoder<T> decoder) {
+    this.streamDecoders.put(type, decoder);
+  }
+
+  /** Decoder for complete response bodies of {@code type}. */
+  public <T> Decoder<T> decoder(Class<T> type) {
+    @SuppressWarnings("unchecked")
+    StreamDecoder<T> streaming = (StreamDecoder<T>) this.streamDecoders.get(type);
+    if (streaming == null) {
+      ObjectReader reader = reader(type);
+      return data -> reader.readValue(data);
+    }
+    return data -> {
+      try (JsonParser p = parser(data)) {
+        p.nextToken();
+        return streaming.decode(p);
+      }
+    };
+  }
+
+  /** Raw streaming parser over a message body, for decoders that walk it incrementally. */
+  public JsonParser parser(byte[] data) throws IOException {
+    return mapper(JsonInclude.Include.USE_DEFAULTS).createParser(data);
+  }
+
+  /** The types that have a streaming decoder, by name. */
+  List<Class<?>> streamingTypes() {
+    return this.streamDecoders.keySet().stream()
+        .sorted(Comparator.comparing(Class::getName))
+        .toList();
+  }
+
+  /** The tables the streaming decoders read repeated fields through. */
+  RecordCodecs.Strings strings() {
+    return this.strings;
+  }
+
+  /** Decodes a whole message body. */
+  @FunctionalInterface
+  public interface Decoder<T> {
+    T decode(byte[] data) throws IOException;
+  }
+
+  /** Decodes one value from a parser positioned on the value's first token. */
+  @FunctionalInterface
+  public interface StreamDecoder<T> {
+    T decode(JsonParser p) throws IOException;
+  }
+
+  private ObjectMapper mapper(JsonInclude.Include inclusion) {
+    return this.mappers.computeIfAbsent(
+        inclusion,
+        i ->
+            i == JsonInclude.Include.USE_DEFAULTS
+                ? new ObjectMapper()
+                : new ObjectMapper().setSerializationInclusion(i));
+  }
+
+  private record WriterKey(Class<?> type, JsonInclude.Include inclusion) {}
+}
@@ -0,0 +1,309 @@
+package client;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limits on requests in flight, one limit per service ({@code svc.<service>}).
+ *
+ * <p>Each limit follows the TCP Vegas idea: the lowest round-trip time seen is taken as the
+ * service's unloaded latency, and {@code limit * (1 - minRtt / rtt)} estimates how many requests
+ * are queued behind the ones being worked on. While that estimate is small the limit grows, once it
+ * is large the limit shrinks, and a request that timed out or found no responder shrinks it too.
+ * A request cancelled through the future the limiter returned, such as the slower copy of a hedged
+ * read, just returns its slot. The limit therefore settles where the backend is busy but not yet
+ * queueing, instead of at whatever a burst happens to send.
+ *
+ * <p>Requests over the limit either wait in a bounded queue for a slot ({@link Overflow#QUEUE}), or
+ * fail straight away ({@link Overflow#SHED}); either way a request that cannot be sent fails with
+ * {@link LimitExceededException}.
+ */
+public final class ConcurrencyLimitPolicy {
+
+  public enum Overflow {
+    QUEUE,
+    SHED
+  }
+
+  /** Per-service state and counters. */
+  public record Metrics(int limit, int inFlight, int queued, long minRttMicros, long shed) {}
+
+  /** Raised for a request the limiter would not send. */
+  public static final class LimitExceededException extends ServiceException {
+    public LimitExceededException(String service) {
+      super("Concurrency limit reached for " + service, 429);
+    }
+  }
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final Overflow overflow;
+  private final int maxQueue;
+  private final Duration maxWait;
+  private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+  private ConcurrencyLimitPolicy(Builder builder) {
+    this.initialLimit = builder.initialLimit;
+    this.minLimit = builder.minLimit;
+    this.maxLimit = builder.maxLimit;
+    this.overflow = builder.overflow;
+    this.maxQueue = builder.maxQueue;
+    this.maxWait = builder.maxWait;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** State for every service that has been called, by service. */
+  public Map<String, Metrics> metrics() {
+    Map<String, Metrics> metrics = new TreeMap<>();
+    this.limiters.forEach((service, limiter) -> metrics.put(service, limiter.metrics()));
+    return metrics;
+  }
+
+  /** The limiter for the service {@code subject} belongs to. */
+  Limiter limiter(String subject) {
+    return this.limiters.computeIfAbsent(service(subject), Limiter::new);
+  }
+
+  /** {@code svc.account.<partner>.get_details} → {@code svc.account}. */
+  static String service(String subject) {
+    int first = subject.indexOf('.');
+    int second = first < 0 ? -1 : subject.indexOf('.', first + 1);
+    return second < 0 ? subject : subject.substring(0, second);
+  }
+
+  final class Limiter {
+    private final String service;
+    private final ArrayDeque<CompletableFuture<Void>> queue = new ArrayDeque<>();
+    private double limit = ConcurrencyLimitPolicy.this.initialLimit;
+    private int inFlight;
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samplesSinceReset;
+    private long shed;
+
+    private Limiter(String service) {
+      this.service = service;
+    }
+
+    <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+      CompletableFuture<Void> slot = acquire();
+      if (slot == null) {
+        return send(call);
+      }
+      CompletableFuture<T> result = new CompletableFuture<>();
+      slot.whenComplete(
+          (granted, error) -> {
+            if (error != null) {
+              result.completeExceptionally(
+                  error instanceof TimeoutException
+                      ? new LimitExceededException(this.service)
+                      : error);
+            } else if (result.isDone()) {
+              giveBack(); // cancelled by the caller while queued
+            } else {
+              CompletableFuture<T> reply = send(call);
+              result.whenComplete((value, e) -> reply.cancel(false));
+              reply.whenComplete(
+                  (value, e) -> {
+                    if (e == null) {
+                      result.complete(value);
+                    } else {
+                      result.completeExceptionally(e);
+                    }
+                  });
+            }
+          });
+      result.whenComplete((value, error) -> slot.cancel(false));
+      return result;
+    }
+
+    /** Null if a slot was free; otherwise a future that completes once one is handed over. */
+    private synchronized CompletableFuture<Void> acquire() {
+      if (this.inFlight < (int) this.limit) {
+        this.inFlight++;
+        return null;
+      }
+      if (ConcurrencyLimitPolicy.this.overflow == Overflow.SHED
+          || this.queue.size() >= ConcurrencyLimitPolicy.this.maxQueue) {
+        this.shed++;
+        return CompletableFuture.failedFuture(new LimitExceededException(this.service));
+      }
+      CompletableFuture<Void> waiter = new CompletableFuture<>();
+      this.queue.add(waiter);
+      waiter
+          .orTimeout(ConcurrencyLimitPolicy.this.maxWait.toNanos(), TimeUnit.NANOSECONDS)
+          .whenComplete(
+              (granted, error) -> {
+                if (error != null) {
+                  abandon(waiter);
+                }
+              });
+      return waiter;
+    }
+
+    private synchronized void abandon(CompletableFuture<Void> waiter) {
+      if (this.queue.remove(waiter)) {
+        this.shed++;
+      }
+    }
+
+    private <T> CompletableFuture<T> send(Supplier<CompletableFuture<T>> call) {
+      long start = System.nanoTime();
+      CompletableFuture<T> reply;
+      try {
+        reply = call.get();
+      } catch (RuntimeException e) {
+        release(System.nanoTime() - start, false);
+        return CompletableFuture.failedFuture(e);
+      }
+      reply.whenComplete(
+          (value, error) -> {
+            Throwable cause = unwrap(error);
+            if (cause instanceof CircuitBreakerPolicy.CircuitOpenException) {
+              giveBack(); // never reached the backend, so its latency says nothing
+            } else if (reply.isCancelled()) {
+              giveBack(); // a hedge loser or an impatient caller, not a sign of overload
+            } else {
+              // jnats fails a timed-out or unanswered request with a CancellationException,
+              // which reaches here wrapped; a per-attempt timeout is a TimeoutException.
+              release(
+                  System.nanoTime() - start,
+                  cause instanceof CancellationException || cause instanceof TimeoutException);
+            }
+          });
+      return reply;
+    }
+
+    private void release(long rttNanos, boolean dropped) {
+      synchronized (this) {
+        this.inFlight--;
+        update(rttNanos, dropped);
+      }
+      drain();
+    }
+
+    private void giveBack() {
+      synchronized (this) {
+        this.inFlight--;
+      }
+      drain();
+    }
+
+    /** Hands free slots to queued requests, which then send on this thread, outside the lock. */
+    private void drain() {
+      while (true) {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+          if (this.inFlight >= (int) this.limit || (next = this.queue.poll()) == null) {
+            return;
+          }
+          this.inFlight++;
+        }
+        if (!next.complete(null)) {
+          synchronized (this) {
+            this.inFlight--; // timed out while queued
+          }
+        }
+      }
+    }
+
+    /** Vegas update; see the class comment. */
+    private void update(long rttNanos, boolean dropped) {
+      int max = ConcurrencyLimitPolicy.this.maxLimit;
+      int min = ConcurrencyLimitPolicy.this.minLimit;
+      if (dropped) {
+        this.limit = Math.max(min, this.limit - Math.max(1, Math.log10(this.limit)));
+        return;
+      }
+      // Re-learn the unloaded RTT now and then, in case the backend got faster or slower.
+      if (++this.samplesSinceReset > 100 * this.limit) {
+        this.samplesSinceReset = 0;
+        this.minRttNanos = rttNanos;
+      }
+      this.minRttNanos = Math.min(this.minRttNanos, rttNanos);
+      // Only a busy client learns anything about the backend's capacity.
+      if (this.inFlight * 2 < this.limit) {
+        return;
+      }
+      double log = Math.max(1, Math.log10(this.limit));
+      double queued = this.limit * (1 - (double) this.minRttNanos / rttNanos);
+      if (queued <= log) {
+        this.limit += 6 * log;
+      } else if (queued < 3 * log) {
+        this.limit += log;
+      } else if (queued > 6 * log) {
+        this.limit -= log;
+      }
+      this.limit = Math.max(min, Math.min(max, this.limit));
+    }
+
+    private synchronized Metrics metrics() {
+      return new Metrics(
+          (int) this.limit,
+          this.inFlight,
+          this.queue.size(),
+          this.minRttNanos == Long.MAX_VALUE ? 0 : this.minRttNanos / 1000,
+          this.shed);
+    }
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    while (error instanceof CompletionException && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  public static final class Builder {
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 500;
+    private Overflow overflow = Overflow.QUEUE;
+    private int maxQueue = 1000;
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    private Builder() {}
+
+    /** Starting limit, and the range it adapts within. */
+    public Builder limits(int initial, int min, int max) {
+      if (min < 1 || initial < min || max < initial) {
+        throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+      }
+      this.initialLimit = initial;
+      this.minLimit = min;
+      this.maxLimit = max;
+      return this;
+    }
+
+    /** Fail requests over the limit immediately. */
+    public Builder shed() {
+      this.overflow = Overflow.SHED;
+      return this;
+    }
+
+    /** Queue up to {@code maxQueue} requests over the limit, each for at most {@code maxWait}. */
+    public Builder queue(int maxQueue, Duration maxWait) {
+      this.overflow = Overflow.QUEUE;
+      this.maxQueue = maxQueue;
+      this.maxWait = maxWait;
+      return this;
+    }
+
+    public ConcurrencyLimitPolicy build() {
+      return new ConcurrencyLimitPolicy(this);
+    }
+  }
+}
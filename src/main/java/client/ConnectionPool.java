@@ -0,0 +1,203 @@
+package client;
+
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * A set of NATS connections that service requests are spread across.
+ *
+ * <p>Requests go to a shared lane of connections, picked per request either round-robin or by
+ * fewest requests in flight. Subject prefixes can be pinned to their own lane, so that, for example,
+ * {@code svc.account.} RPCs or Object Store traffic ({@link #OBJECT_STORE}) never queue behind
+ * other work on the same socket. Endpoints resolve their {@link Route} once, at bind time.
+ *
+ * <p>The pool owns its connections and closes them on {@link #close()}.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+  /** Pin key for Object Store traffic; uploaders look it up with {@link #connectionFor}. */
+  public static final String OBJECT_STORE = "$O.";
+
+  public enum Strategy {
+    ROUND_ROBIN,
+    LEAST_PENDING
+  }
+
+  private final Lane shared;
+  private final Map<String, Lane> pinned;
+  private final List<Connection> all;
+
+  private ConnectionPool(Lane shared, Map<String, Lane> pinned, List<Connection> all) {
+    this.shared = shared;
+    this.pinned = pinned;
+    this.all = all;
+  }
+
+  /** A pool of one: every subject goes to {@code nc}. */
+  public static ConnectionPool of(Connection nc) {
+    return builder().add(nc).build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** The lane serving {@code subject}: the longest pinned prefix it matches, else the shared one. */
+  public Route route(String subject) {
+    return lane(subject);
+  }
+
+  /** A connection for work that is not a request, e.g. an Object Store handle. */
+  public Connection connectionFor(String subject) {
+    Lane lane = lane(subject);
+    return lane.connections[lane.pick()];
+  }
+
+  /** The first shared connection. */
+  public Connection primary() {
+    return shared.connections[0];
+  }
+
+  public List<Connection> connections() {
+    return all;
+  }
+
+  private Lane lane(String subject) {
+    Lane match = shared;
+    int matchLength = -1;
+    for (Map.Entry<String, Lane> pin : pinned.entrySet()) {
+      String prefix = pin.getKey();
+      if (prefix.length() > matchLength && subject.startsWith(prefix)) {
+        match = pin.getValue();
+        matchLength = prefix.length();
+      }
+    }
+    return match;
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    for (Connection nc : all) {
+      nc.close();
+    }
+  }
+
+  /** Sends requests for one subject over the connections of its lane. */
+  public interface Route {
+    CompletableFuture<Message> request(String subject, Headers headers, byte[] body);
+  }
+
+  private static final class Lane implements Route {
+    private final Connection[] connections;
+    private final Strategy strategy;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicInteger[] pending;
+    private final List<BiConsumer<Message, Throwable>> releases;
+
+    Lane(List<Connection> connections, Strategy strategy) {
+      this.connections = connections.toArray(new Connection[0]);
+      this.strategy = strategy;
+      this.pending = new AtomicInteger[this.connections.length];
+      this.releases = new ArrayList<>(this.connections.length);
+      for (int i = 0; i < this.connections.length; i++) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pending[i] = counter;
+        this.releases.add((msg, error) -> counter.decrementAndGet());
+      }
+    }
+
+    @Override
+    public CompletableFuture<Message> request(String subject, Headers headers, byte[] body) {
+      if (connections.length == 1) {
+        return connections[0].request(subject, headers, body);
+      }
+      int i = pick();
+      if (strategy == Strategy.ROUND_ROBIN) {
+        return connections[i].request(subject, headers, body);
+      }
+      pending[i].incrementAndGet();
+      CompletableFuture<Message> reply;
+      try {
+        reply = connections[i].request(subject, headers, body);
+      } catch (RuntimeException e) {
+        pending[i].decrementAndGet();
+        throw e;
+      }
+      reply.whenComplete(releases.get(i));
+      return reply;
+    }
+
+    int pick() {
+      int n = connections.length;
+      if (n == 1) {
+        return 0;
+      }
+      int start = Math.floorMod(cursor.getAndIncrement(), n);
+      if (strategy == Strategy.ROUND_ROBIN) {
+        return start;
+      }
+      // Rotate the scan start so ties don't all land on the first connection.
+      int best = start;
+      int bestPending = pending[start].get();
+      for (int k = 1; k < n && bestPending > 0; k++) {
+        int i = (start + k) % n;
+        int p = pending[i].get();
+        if (p < bestPending) {
+          best = i;
+          bestPending = p;
+        }
+      }
+      return best;
+    }
+  }
+
+  public static final class Builder {
+    private final List<Connection> shared = new ArrayList<>();
+    private final Map<String, List<Connection>> pinned = new LinkedHashMap<>();
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+
+    private Builder() {}
+
+    /** Adds a connection to the shared lane. */
+    public Builder add(Connection nc) {
+      shared.add(nc);
+      return this;
+    }
+
+    /** Reserves {@code nc} for subjects starting with {@code subjectPrefix}. */
+    public Builder pin(String subjectPrefix, Connection nc) {
+      pinned.computeIfAbsent(subjectPrefix, p -> new ArrayList<>()).add(nc);
+      return this;
+    }
+
+    public Builder strategy(Strategy strategy) {
+      this.strategy = strategy;
+      return this;
+    }
+
+    public ConnectionPool build() {
+      if (shared.isEmpty()) {
+        throw new IllegalStateException("ConnectionPool needs at least one shared connection");
+      }
+      List<Connection> all = new ArrayList<>(shared);
+      Map<String, Lane> lanes = new LinkedHashMap<>();
+      for (Map.Entry<String, List<Connection>> pin : pinned.entrySet()) {
+        lanes.put(pin.getKey(), new Lane(pin.getValue(), strategy));
+        for (Connection nc : pin.getValue()) {
+          if (!all.contains(nc)) {
+            all.add(nc);
+          }
+        }
+      }
+      return new ConnectionPool(new Lane(shared, strategy), Map.copyOf(lanes), List.copyOf(all));
+    }
+  }
+}
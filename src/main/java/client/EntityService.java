@@ -1,190 +1,71 @@
 package client;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.nats.client.Connection;
-import io.nats.client.impl.Headers;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class EntityService {
 
-  private final Connection nc;
-  private final String token;
-  private final ObjectMapper objectMapper;
-
-  private final List<String> subjectParams;
+  private final RequestEngine.Endpoint<EntityInfoRequest, EntityInfoResponse> info;
+  private final RequestEngine.Endpoint<UpdateAddressRequest, UpdateAddressResponse> update_address;
+  private final RequestEngine.Endpoint<CreateEntityRequest, CreateEntityResponse> create;
+  private final RequestEngine.Endpoint<ListEntityRequest, ListEntityResponse> list_entities;
 
   public EntityService(Connection nc, String token, List<String> subjectParams) {
-    if (token == null || token.trim().isEmpty()) {
-      throw new IllegalArgumentException("Token cannot be null or empty");
-    }
-    this.nc = nc;
-    this.token = token;
-    this.objectMapper = new ObjectMapper()
-        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
-
-    this.subjectParams = subjectParams;
+    this(nc, token, subjectParams, Codecs.shared());
   }
 
-  public CompletableFuture<EntityInfoResponse> info(EntityInfoRequest req) {
-    String ep = "svc.entity.*.info";
-
-    StringBuilder epBuilder = new StringBuilder("svc.entity.*.info");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
+  public EntityService(Connection nc, String token, List<String> subjectParams, Codecs codecs) {
+    this(ConnectionPool.of(nc), token, subjectParams, codecs);
+  }
 
-    Headers headers = new Headers();
-    headers.add("token", this.token);
+  public EntityService(
+      ConnectionPool pool, String token, List<String> subjectParams, Codecs codecs) {
+    this(pool, token, subjectParams, ServiceOptions.of(codecs));
+  }
 
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
+  public EntityService(
+      ConnectionPool pool, String token, List<String> subjectParams, ServiceOptions options) {
+    RequestEngine engine =
+        new RequestEngine(pool, token, subjectParams, options, JsonInclude.Include.NON_NULL);
+
+    this.info =
+        engine
+            .endpoint("svc.entity.*.info", EntityInfoRequest.class, EntityInfoResponse.class)
+            .hedged()
+            .coalesced()
+            .cached(Duration.ofMinutes(5));
+    this.update_address =
+        engine
+            .endpoint(
+                "svc.entity.*.update_address",
+                UpdateAddressRequest.class,
+                UpdateAddressResponse.class)
+            .invalidates("svc.entity.*.info");
+    this.create =
+        engine.endpoint(
+            "svc.entity.*.create", CreateEntityRequest.class, CreateEntityResponse.class);
+    this.list_entities =
+        engine.endpoint(
+            "svc.entity.*.list-entities", ListEntityRequest.class, ListEntityResponse.class);
+  }
 
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), EntityInfoResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+  public CompletableFuture<EntityInfoResponse> info(EntityInfoRequest req) {
+    return this.info.request(req);
   }
 
   public CompletableFuture<UpdateAddressResponse> update_address(UpdateAddressRequest req) {
-    String ep = "svc.entity.*.update_address";
-
-    StringBuilder epBuilder = new StringBuilder("svc.entity.*.update_address");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), UpdateAddressResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.update_address.request(req);
   }
 
   public CompletableFuture<CreateEntityResponse> create(CreateEntityRequest req) {
-    String ep = "svc.entity.*.create";
-
-    StringBuilder epBuilder = new StringBuilder("svc.entity.*.create");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), CreateEntityResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.create.request(req);
   }
 
   public CompletableFuture<ListEntityResponse> list_entities(ListEntityRequest req) {
-    String ep = "svc.entity.*.list-entities";
-
-    StringBuilder epBuilder = new StringBuilder("svc.entity.*.list-entities");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), ListEntityResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.list_entities.request(req);
   }
 
   // Generated Types
@@ -0,0 +1,222 @@
+package client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for read-only endpoints.
+ *
+ * <p>If a read has not been answered after the hedge delay, an identical second request is sent
+ * and whichever reply arrives first wins; the other is cancelled. The delay is either fixed, or
+ * tracks a percentile of the endpoint's recent latencies, so only the slow tail is hedged. Hedges
+ * are drawn from a budget of {@link Builder#budget a fraction of calls}, which bounds the extra
+ * traffic even when the backend as a whole slows down.
+ *
+ * <p>Only reads are hedged (see {@code RequestEngine.Endpoint#hedged}); a write could be applied
+ * twice.
+ */
+public final class HedgePolicy {
+
+  private static final int SAMPLES = 512;
+  private static final int WARMUP = 64;
+  private static final int REFRESH = 64;
+
+  private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+  private final long delayNanos;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final TokenBudget budget;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private final LongAdder budgetExhausted = new LongAdder();
+
+  private HedgePolicy(Builder builder) {
+    this.delayNanos = builder.delay.toNanos();
+    this.percentile = builder.percentile;
+    this.minDelayNanos = builder.minDelay.toNanos();
+    this.budget = new TokenBudget(builder.budgetRatio, builder.budgetReserve);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Counters since the policy was built. */
+  public record Metrics(long calls, long hedges, long hedgeWins, long budgetExhausted) {}
+
+  public Metrics metrics() {
+    return new Metrics(
+        this.calls.sum(), this.hedges.sum(), this.hedgeWins.sum(), this.budgetExhausted.sum());
+  }
+
+  /** Latency history for one endpoint, used to derive its hedge delay. */
+  Tracker tracker() {
+    return new Tracker();
+  }
+
+  /** Sends {@code request}, and again after the hedge delay if it is still outstanding. */
+  <T> CompletableFuture<T> execute(Tracker tracker, Supplier<CompletableFuture<T>> request) {
+    this.calls.increment();
+    this.budget.deposit();
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger outstanding = new AtomicInteger(1);
+    CompletableFuture<T> primary = send(tracker, request);
+    ScheduledFuture<?> timer =
+        TIMER.schedule(
+            () -> {
+              if (result.isDone()) {
+                return;
+              }
+              if (!this.budget.tryWithdraw()) {
+                this.budgetExhausted.increment();
+                return;
+              }
+              this.hedges.increment();
+              outstanding.incrementAndGet();
+              CompletableFuture<T> hedge = send(tracker, request);
+              hedge.whenComplete(
+                  (value, error) -> {
+                    if (error == null && result.complete(value)) {
+                      this.hedgeWins.increment();
+                      primary.cancel(false);
+                    } else if (error != null && outstanding.decrementAndGet() == 0) {
+                      result.completeExceptionally(error);
+                    }
+                  });
+              result.whenComplete((value, error) -> hedge.cancel(false));
+            },
+            tracker.delayNanos(),
+            TimeUnit.NANOSECONDS);
+    result.whenComplete((value, error) -> primary.cancel(false));
+    primary.whenComplete(
+        (value, error) -> {
+          timer.cancel(false);
+          if (error == null) {
+            result.complete(value);
+          } else if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(error);
+          }
+        });
+    return result;
+  }
+
+  private <T> CompletableFuture<T> send(Tracker tracker, Supplier<CompletableFuture<T>> request) {
+    long start = System.nanoTime();
+    CompletableFuture<T> reply;
+    try {
+      reply = request.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    reply.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            tracker.record(System.nanoTime() - start);
+          }
+        });
+    return reply;
+  }
+
+  private static ScheduledThreadPoolExecutor timer() {
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            r -> {
+              Thread t = Executors.defaultThreadFactory().newThread(r);
+              t.setName("vertex-hedge-timer");
+              t.setDaemon(true);
+              return t;
+            });
+    // Most hedges are cancelled because the primary answered; don't keep them queued.
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+  final class Tracker {
+    private final long[] samples = new long[SAMPLES];
+    private int next;
+    private int count;
+    private int sinceRefresh;
+    private volatile long thresholdNanos = HedgePolicy.this.delayNanos;
+
+    long delayNanos() {
+      return this.thresholdNanos;
+    }
+
+    synchronized void record(long nanos) {
+      if (Double.isNaN(HedgePolicy.this.percentile)) {
+        return;
+      }
+      this.samples[this.next] = nanos;
+      this.next = (this.next + 1) % SAMPLES;
+      if (this.count < SAMPLES) {
+        this.count++;
+      }
+      if (++this.sinceRefresh >= REFRESH && this.count >= WARMUP) {
+        this.sinceRefresh = 0;
+        long[] sorted = Arrays.copyOf(this.samples, this.count);
+        Arrays.sort(sorted);
+        int at = Math.min(this.count - 1, (int) (this.count * HedgePolicy.this.percentile));
+        this.thresholdNanos = Math.max(HedgePolicy.this.minDelayNanos, sorted[at]);
+      }
+    }
+  }
+
+  public static final class Builder {
+    private Duration delay = Duration.ofMillis(50);
+    private double percentile = Double.NaN;
+    private Duration minDelay = Duration.ZERO;
+    private double budgetRatio = 0.05;
+    private int budgetReserve = 10;
+
+    private Builder() {}
+
+    /**
+     * Fixed hedge delay. With {@link #percentile} set, it is only used until enough latencies have
+     * been seen.
+     */
+    public Builder delay(Duration delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    /**
+     * Hedges once a request has taken longer than this percentile (e.g. 0.95) of the endpoint's
+     * recent latencies, but never sooner than {@code minDelay}.
+     */
+    public Builder percentile(double percentile, Duration minDelay) {
+      if (!(percentile > 0 && percentile < 1)) {
+        throw new IllegalArgumentException("percentile must be between 0 and 1");
+      }
+      this.percentile = percentile;
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /**
+     * Hedges allowed per call over time ({@code ratio}), plus a {@code reserve} available up
+     * front. The defaults are 5% and 10.
+     */
+    public Builder budget(double ratio, int reserve) {
+      this.budgetRatio = ratio;
+      this.budgetReserve = reserve;
+      return this;
+    }
+
+    public HedgePolicy build() {
+      return new HedgePolicy(this);
+    }
+  }
+}
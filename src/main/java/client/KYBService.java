@@ -1,231 +1,88 @@
 package client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.nats.client.Connection;
-import io.nats.client.impl.Headers;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class KYBService {
 
-  private final Connection nc;
-  private final String token;
-  private final ObjectMapper objectMapper;
-
-  private final List<String> subjectParams;
+  private final RequestEngine.Endpoint<GetKYBRequest, GetKYBResponse> get;
+  private final RequestEngine.Endpoint<SubmitDocumentsRequest, SubmitDocumentsResponse> submit;
+  private final RequestEngine.Endpoint<UpdateKYBRequest, UpdateKYBResponse> update;
+  private final RequestEngine.Endpoint<
+          SendDirectorVerificationLinkRequest, SendDirectorVerificationLinkResponse>
+      send_verification_email;
+  private final RequestEngine.Endpoint<UpdateDirectorRequest, UpdateDirectorResponse>
+      update_director;
 
   public KYBService(Connection nc, String token, List<String> subjectParams) {
-    if (token == null || token.trim().isEmpty()) {
-      throw new IllegalArgumentException("Token cannot be null or empty");
-    }
-    this.nc = nc;
-    this.token = token;
-    this.objectMapper = new ObjectMapper();
-
-    this.subjectParams = subjectParams;
+    this(nc, token, subjectParams, Codecs.shared());
   }
 
-  public CompletableFuture<GetKYBResponse> get(GetKYBRequest req) {
-    String ep = "svc.kyb.*.get";
-
-    StringBuilder epBuilder = new StringBuilder("svc.kyb.*.get");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
+  public KYBService(Connection nc, String token, List<String> subjectParams, Codecs codecs) {
+    this(ConnectionPool.of(nc), token, subjectParams, codecs);
+  }
 
-    Headers headers = new Headers();
-    headers.add("token", this.token);
+  public KYBService(
+      ConnectionPool pool, String token, List<String> subjectParams, Codecs codecs) {
+    this(pool, token, subjectParams, ServiceOptions.of(codecs));
+  }
 
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
+  public KYBService(
+      ConnectionPool pool, String token, List<String> subjectParams, ServiceOptions options) {
+    RequestEngine engine =
+        new RequestEngine(pool, token, subjectParams, options, JsonInclude.Include.USE_DEFAULTS);
+
+    this.get =
+        engine
+            .endpoint("svc.kyb.*.get", GetKYBRequest.class, GetKYBResponse.class)
+            .hedged()
+            .cached(Duration.ofMinutes(1));
+    this.submit =
+        engine
+            .endpoint(
+                "svc.kyb.*.submit", SubmitDocumentsRequest.class, SubmitDocumentsResponse.class)
+            .invalidates("svc.kyb.*.get");
+    this.update =
+        engine
+            .endpoint("svc.kyb.*.update", UpdateKYBRequest.class, UpdateKYBResponse.class)
+            .invalidates("svc.kyb.*.get");
+    this.send_verification_email =
+        engine.endpoint(
+            "svc.kyb.*.send_verification_email",
+            SendDirectorVerificationLinkRequest.class,
+            SendDirectorVerificationLinkResponse.class);
+    this.update_director =
+        engine
+            .endpoint(
+                "svc.kyb.*.update_director",
+                UpdateDirectorRequest.class,
+                UpdateDirectorResponse.class)
+            .invalidates("svc.kyb.*.get");
+  }
 
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), GetKYBResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+  public CompletableFuture<GetKYBResponse> get(GetKYBRequest req) {
+    return this.get.request(req);
   }
 
   public CompletableFuture<SubmitDocumentsResponse> submit(SubmitDocumentsRequest req) {
-    String ep = "svc.kyb.*.submit";
-
-    StringBuilder epBuilder = new StringBuilder("svc.kyb.*.submit");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), SubmitDocumentsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.submit.request(req);
   }
 
   public CompletableFuture<UpdateKYBResponse> update(UpdateKYBRequest req) {
-    String ep = "svc.kyb.*.update";
-
-    StringBuilder epBuilder = new StringBuilder("svc.kyb.*.update");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), UpdateKYBResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.update.request(req);
   }
 
   public CompletableFuture<SendDirectorVerificationLinkResponse> send_verification_email(
       SendDirectorVerificationLinkRequest req) {
-    String ep = "svc.kyb.*.send_verification_email";
-
-    StringBuilder epBuilder = new StringBuilder("svc.kyb.*.send_verification_email");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), SendDirectorVerificationLinkResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.send_verification_email.request(req);
   }
 
   public CompletableFuture<UpdateDirectorResponse> update_director(UpdateDirectorRequest req) {
-    String ep = "svc.kyb.*.update_director";
-
-    StringBuilder epBuilder = new StringBuilder("svc.kyb.*.update_director");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), UpdateDirectorResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.update_director.request(req);
   }
 
   // Generated Types
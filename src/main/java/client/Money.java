@@ -0,0 +1,85 @@
+package client;
+
+/**
+ * Fixed-point money helpers for the API's string amounts.
+ *
+ * <p>Amounts, fees and balances come over the wire as whole cents (e.g. {@code "1000"} for R10.00).
+ * These helpers turn them into {@code long} cents without allocating, either from a {@code String}
+ * or straight from a parser's character buffer, so bulk aggregation never goes through {@code
+ * BigDecimal} or {@code Long.parseLong} with its exception path.
+ */
+public final class Money {
+
+  /** Returned for null, empty, non-integer or out-of-range input. */
+  public static final long INVALID = Long.MIN_VALUE;
+
+  private Money() {}
+
+  public static long parseCents(CharSequence value) {
+    if (value == null) {
+      return INVALID;
+    }
+    int len = value.length();
+    if (len == 0) {
+      return INVALID;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = value.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (++i == len) {
+        return INVALID;
+      }
+    }
+    long cents = 0;
+    for (; i < len; i++) {
+      int digit = value.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || cents > (Long.MAX_VALUE - digit) / 10) {
+        return INVALID;
+      }
+      cents = cents * 10 + digit;
+    }
+    return negative ? -cents : cents;
+  }
+
+  /** Parses {@code len} characters of {@code buf} starting at {@code off}. */
+  public static long parseCents(char[] buf, int off, int len) {
+    if (len == 0) {
+      return INVALID;
+    }
+    int i = off;
+    int end = off + len;
+    boolean negative = false;
+    if (buf[i] == '-' || buf[i] == '+') {
+      negative = buf[i] == '-';
+      if (++i == end) {
+        return INVALID;
+      }
+    }
+    long cents = 0;
+    for (; i < end; i++) {
+      int digit = buf[i] - '0';
+      if (digit < 0 || digit > 9 || cents > (Long.MAX_VALUE - digit) / 10) {
+        return INVALID;
+      }
+      cents = cents * 10 + digit;
+    }
+    return negative ? -cents : cents;
+  }
+
+  /** The wire form of {@code cents}, or null for {@link #INVALID}. */
+  public static String toString(long cents) {
+    return cents == INVALID ? null : Long.toString(cents);
+  }
+
+  /** Display form, e.g. {@code R 10.00}. */
+  public static String format(long cents) {
+    if (cents == INVALID) {
+      return null;
+    }
+    long abs = Math.abs(cents);
+    long fraction = abs % 100;
+    return (cents < 0 ? "R -" : "R ") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+  }
+}
@@ -0,0 +1,197 @@
+package client;
+
+/**
+ * Reusable, mutable counterpart of {@link AccountService.Transaction}.
+ *
+ * <p>{@link TransactionCursor#next(MutableTransaction)} overwrites one holder per element, so a
+ * caller walking a large history allocates no per-transaction record. Accessors mirror the record's
+ * component names; call {@link #toRecord()} to keep a copy past the next element.
+ *
+ * <p>Money fields are also exposed as {@code long} cents (see {@link Money}), and {@code date} as
+ * epoch milliseconds (see {@link Timestamps}), parsed straight from the parser's buffer. A holder
+ * from {@link #amountsOnly()} decodes nothing but those: the other fields are skipped and the money
+ * strings are only built if their accessors are called, so summing a history allocates nothing per
+ * transaction.
+ */
+public final class MutableTransaction {
+
+  final boolean amountsOnly;
+
+  String txId;
+  String parentTxId;
+  String date;
+  String amount;
+  String ref;
+  String status;
+  String txSha;
+  String userId;
+  String addedBy;
+  String txType;
+  String txPaymentType;
+  String fee;
+  String recipientName;
+  String credit;
+  String debit;
+  String runningBalance;
+  boolean verified;
+
+  long amountCents = Money.INVALID;
+  long feeCents = Money.INVALID;
+  long creditCents = Money.INVALID;
+  long debitCents = Money.INVALID;
+  long runningBalanceCents = Money.INVALID;
+  long dateMillis = Timestamps.INVALID;
+
+  public MutableTransaction() {
+    this(false);
+  }
+
+  private MutableTransaction(boolean amountsOnly) {
+    this.amountsOnly = amountsOnly;
+  }
+
+  /** A holder that decodes only the money fields, as cents. */
+  public static MutableTransaction amountsOnly() {
+    return new MutableTransaction(true);
+  }
+
+  void clear() {
+    this.txId = null;
+    this.parentTxId = null;
+    this.date = null;
+    this.amount = null;
+    this.ref = null;
+    this.status = null;
+    this.txSha = null;
+    this.userId = null;
+    this.addedBy = null;
+    this.txType = null;
+    this.txPaymentType = null;
+    this.fee = null;
+    this.recipientName = null;
+    this.credit = null;
+    this.debit = null;
+    this.runningBalance = null;
+    this.verified = false;
+    this.amountCents = Money.INVALID;
+    this.feeCents = Money.INVALID;
+    this.creditCents = Money.INVALID;
+    this.debitCents = Money.INVALID;
+    this.runningBalanceCents = Money.INVALID;
+    this.dateMillis = Timestamps.INVALID;
+  }
+
+  public AccountService.Transaction toRecord() {
+    return new AccountService.Transaction(
+        txId,
+        parentTxId,
+        date,
+        amount(),
+        ref,
+        status,
+        txSha,
+        userId,
+        addedBy,
+        txType,
+        txPaymentType,
+        fee(),
+        recipientName,
+        credit(),
+        debit(),
+        running_balance(),
+        verified);
+  }
+
+  public String tx_id() {
+    return txId;
+  }
+
+  public String parent_tx_id() {
+    return parentTxId;
+  }
+
+  public String date() {
+    return date;
+  }
+
+  public String amount() {
+    return amountsOnly ? Money.toString(amountCents) : amount;
+  }
+
+  public String ref() {
+    return ref;
+  }
+
+  public String status() {
+    return status;
+  }
+
+  public String tx_sha() {
+    return txSha;
+  }
+
+  public String user_id() {
+    return userId;
+  }
+
+  public String added_by() {
+    return addedBy;
+  }
+
+  public String tx_type() {
+    return txType;
+  }
+
+  public String tx_payment_type() {
+    return txPaymentType;
+  }
+
+  public String fee() {
+    return amountsOnly ? Money.toString(feeCents) : fee;
+  }
+
+  public String recipient_name() {
+    return recipientName;
+  }
+
+  public String credit() {
+    return amountsOnly ? Money.toString(creditCents) : credit;
+  }
+
+  public String debit() {
+    return amountsOnly ? Money.toString(debitCents) : debit;
+  }
+
+  public String running_balance() {
+    return amountsOnly ? Money.toString(runningBalanceCents) : runningBalance;
+  }
+
+  public boolean verified() {
+    return verified;
+  }
+
+  public long amount_cents() {
+    return amountCents;
+  }
+
+  public long fee_cents() {
+    return feeCents;
+  }
+
+  public long credit_cents() {
+    return creditCents;
+  }
+
+  public long debit_cents() {
+    return debitCents;
+  }
+
+  public long running_balance_cents() {
+    return runningBalanceCents;
+  }
+
+  /** {@code date} in epoch milliseconds, or {@link Timestamps#INVALID}. */
+  public long date_millis() {
+    return dateMillis;
+  }
+}
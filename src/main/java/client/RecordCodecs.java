@@ -0,0 +1,778 @@
+package client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoders for the list-heavy response records.
+ *
+ * <p>Each decoder reads its record field by field off a {@link JsonParser} and calls the canonical
+ * constructor directly, so decoding a response costs no reflection and no intermediate tree. They
+ * follow Jackson's record binding: missing fields take the Java default, scalars are coerced to
+ * {@code String} fields, {@code null}/{@code "true"}/numbers are accepted for booleans, and a field
+ * the record does not declare fails the decode with {@link UnrecognizedPropertyException}.
+ *
+ * <p>With a {@link Strings} (see {@link Codecs#Codecs(boolean)}), the fields whose values repeat
+ * from element to element of a long list, such as a transaction's {@code status} or {@code
+ * user_id}, are read through a {@link StringTable} per field, so each distinct value is held once.
+ *
+ * <p>The decoders are written by hand, not generated: each field list mirrors its record
+ * declaration and has to be kept in step with it. {@link CodecParity} checks every registered
+ * decoder against Jackson's own binding of the same bytes; run it after changing a record.
+ */
+final class RecordCodecs {
+
+  private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+  private RecordCodecs() {}
+
+  /**
+   * Canonical-value tables for the repeated fields, one per field; see {@link StringTable}. In
+   * {@link #NONE} every table is null and those fields decode like any other.
+   */
+  static final class Strings {
+    static final Strings NONE = new Strings(false);
+
+    final StringTable txStatus;
+    final StringTable txType;
+    final StringTable txPaymentType;
+    final StringTable txAddedBy;
+    final StringTable txUserId;
+    final StringTable cardStatus;
+    final StringTable cardOrgId;
+
+    Strings(boolean canonical) {
+      this.txStatus = canonical ? new StringTable(64) : null;
+      this.txType = canonical ? new StringTable(64) : null;
+      this.txPaymentType = canonical ? new StringTable(64) : null;
+      this.txAddedBy = canonical ? new StringTable(1024) : null;
+      this.txUserId = canonical ? new StringTable(1024) : null;
+      this.cardStatus = canonical ? new StringTable(64) : null;
+      this.cardOrgId = canonical ? new StringTable(256) : null;
+    }
+  }
+
+  static void registerAll(Codecs codecs) {
+    Strings strings = codecs.strings();
+    codecs.register(
+        AccountService.GetTransactionsResponse.class, p -> getTransactionsResponse(p, strings));
+    codecs.register(
+        AccountService.GetTransactionByIdResponse.class,
+        p -> getTransactionByIdResponse(p, strings));
+    codecs.register(UserService.ListUserResponse.class, RecordCodecs::listUserResponse);
+    codecs.register(EntityService.ListEntityResponse.class, RecordCodecs::listEntityResponse);
+    codecs.register(
+        CardService.ListOrganisationCardsResponse.class,
+        p -> listOrganisationCardsResponse(p, strings));
+    codecs.register(
+        CardService.ListOrganisationCardRequestsResponse.class,
+        RecordCodecs::listOrganisationCardRequestsResponse);
+    codecs.register(KYBService.GetKYBResponse.class, RecordCodecs::getKYBResponse);
+  }
+
+  static AccountService.Transaction transaction(JsonParser p, Strings strings) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    MutableTransaction holder = new MutableTransaction();
+    transaction(p, holder, strings);
+    return holder.toRecord();
+  }
+
+  /** Overwrites {@code into} with the transaction object the parser is positioned on. */
+  static void transaction(JsonParser p, MutableTransaction into, Strings strings)
+      throws IOException {
+    expect(p, JsonToken.START_OBJECT);
+    into.clear();
+    if (into.amountsOnly) {
+      transactionAmounts(p, into);
+      return;
+    }
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "tx_id" -> into.txId = string(p);
+        case "parent_tx_id" -> into.parentTxId = string(p);
+        case "date" -> {
+          into.dateMillis = millis(p);
+          into.date = string(p);
+        }
+        case "amount" -> {
+          into.amountCents = cents(p);
+          into.amount = string(p);
+        }
+        case "ref" -> into.ref = string(p);
+        case "status" -> into.status = string(p, strings.txStatus);
+        case "tx_sha" -> into.txSha = string(p);
+        case "user_id" -> into.userId = string(p, strings.txUserId);
+        case "added_by" -> into.addedBy = string(p, strings.txAddedBy);
+        case "tx_type" -> into.txType = string(p, strings.txType);
+        case "tx_payment_type" -> into.txPaymentType = string(p, strings.txPaymentType);
+        case "fee" -> {
+          into.feeCents = cents(p);
+          into.fee = string(p);
+        }
+        case "recipient_name" -> into.recipientName = string(p);
+        case "credit" -> {
+          into.creditCents = cents(p);
+          into.credit = string(p);
+        }
+        case "debit" -> {
+          into.debitCents = cents(p);
+          into.debit = string(p);
+        }
+        case "running_balance" -> {
+          into.runningBalanceCents = cents(p);
+          into.runningBalance = string(p);
+        }
+        case "verified" -> into.verified = p.getValueAsBoolean();
+        default -> unknown(p, AccountService.Transaction.class, field);
+      }
+    }
+  }
+
+  private static void transactionAmounts(JsonParser p, MutableTransaction into)
+      throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "amount" -> into.amountCents = cents(p);
+        case "fee" -> into.feeCents = cents(p);
+        case "credit" -> into.creditCents = cents(p);
+        case "debit" -> into.debitCents = cents(p);
+        case "running_balance" -> into.runningBalanceCents = cents(p);
+        case "date" -> into.dateMillis = millis(p);
+        default -> p.skipChildren();
+      }
+    }
+  }
+
+  static AccountService.GetTransactionsResponse getTransactionsResponse(
+      JsonParser p, Strings strings) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String accountId = null;
+    List<AccountService.Transaction> transactions = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "account_id" -> accountId = string(p);
+        case "transactions" -> transactions = list(p, e -> transaction(e, strings));
+        default -> unknown(p, AccountService.GetTransactionsResponse.class, field);
+      }
+    }
+    return new AccountService.GetTransactionsResponse(accountId, transactions);
+  }
+
+  static AccountService.GetTransactionByIdResponse getTransactionByIdResponse(
+      JsonParser p, Strings strings) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    AccountService.Transaction transaction = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "transaction" -> transaction = transaction(p, strings);
+        default -> unknown(p, AccountService.GetTransactionByIdResponse.class, field);
+      }
+    }
+    return new AccountService.GetTransactionByIdResponse(transaction);
+  }
+
+  static UserService.User user(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    String firstName = null;
+    String lastName = null;
+    String email = null;
+    String phoneNumber = null;
+    String entityId = null;
+    String createdAt = null;
+    String updatedAt = null;
+    boolean verified = false;
+    String verifiedAt = null;
+    String gender = null;
+    String dateOfBirth = null;
+    String country = null;
+    String city = null;
+    String residency = null;
+    String idNumber = null;
+    String idType = null;
+    String idIssueDate = null;
+    String idIssueExpiry = null;
+    String title = null;
+    String dateRegistered = null;
+    String permitNumber = null;
+    String kycStatus = null;
+    String kycSubmittedAt = null;
+    String kycReviewedAt = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "first_name" -> firstName = string(p);
+        case "last_name" -> lastName = string(p);
+        case "email" -> email = string(p);
+        case "phone_number" -> phoneNumber = string(p);
+        case "entity_id" -> entityId = string(p);
+        case "created_at" -> createdAt = string(p);
+        case "updated_at" -> updatedAt = string(p);
+        case "verified" -> verified = p.getValueAsBoolean();
+        case "verified_at" -> verifiedAt = string(p);
+        case "gender" -> gender = string(p);
+        case "date_of_birth" -> dateOfBirth = string(p);
+        case "country" -> country = string(p);
+        case "city" -> city = string(p);
+        case "residency" -> residency = string(p);
+        case "id_number" -> idNumber = string(p);
+        case "id_type" -> idType = string(p);
+        case "id_issue_date" -> idIssueDate = string(p);
+        case "id_issue_expiry" -> idIssueExpiry = string(p);
+        case "title" -> title = string(p);
+        case "date_registered" -> dateRegistered = string(p);
+        case "permit_number" -> permitNumber = string(p);
+        case "kyc_status" -> kycStatus = string(p);
+        case "kyc_submitted_at" -> kycSubmittedAt = string(p);
+        case "kyc_reviewed_at" -> kycReviewedAt = string(p);
+        default -> unknown(p, UserService.User.class, field);
+      }
+    }
+    return new UserService.User(
+        id,
+        firstName,
+        lastName,
+        email,
+        phoneNumber,
+        entityId,
+        createdAt,
+        updatedAt,
+        verified,
+        verifiedAt,
+        gender,
+        dateOfBirth,
+        country,
+        city,
+        residency,
+        idNumber,
+        idType,
+        idIssueDate,
+        idIssueExpiry,
+        title,
+        dateRegistered,
+        permitNumber,
+        kycStatus,
+        kycSubmittedAt,
+        kycReviewedAt);
+  }
+
+  static UserService.ListUserResponse listUserResponse(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    List<UserService.User> users = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "users" -> users = list(p, RecordCodecs::user);
+        default -> unknown(p, UserService.ListUserResponse.class, field);
+      }
+    }
+    return new UserService.ListUserResponse(users);
+  }
+
+  static EntityService.Entity entity(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    String name = null;
+    String tradingName = null;
+    String registrationNumber = null;
+    String email = null;
+    String createdAt = null;
+    String entityType = null;
+    String firstName = null;
+    String lastName = null;
+    String phoneNumber = null;
+    String gender = null;
+    String dateOfBirth = null;
+    String idNumber = null;
+    String idType = null;
+    String idIssueDate = null;
+    String idIssueExpiryDate = null;
+    String city = null;
+    String residency = null;
+    String title = null;
+    String permitNumber = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "name" -> name = string(p);
+        case "trading_name" -> tradingName = string(p);
+        case "registration_number" -> registrationNumber = string(p);
+        case "email" -> email = string(p);
+        case "created_at" -> createdAt = string(p);
+        case "entity_type" -> entityType = string(p);
+        case "first_name" -> firstName = string(p);
+        case "last_name" -> lastName = string(p);
+        case "phone_number" -> phoneNumber = string(p);
+        case "gender" -> gender = string(p);
+        case "date_of_birth" -> dateOfBirth = string(p);
+        case "id_number" -> idNumber = string(p);
+        case "id_type" -> idType = string(p);
+        case "id_issue_date" -> idIssueDate = string(p);
+        case "id_issue_expiry_date" -> idIssueExpiryDate = string(p);
+        case "city" -> city = string(p);
+        case "residency" -> residency = string(p);
+        case "title" -> title = string(p);
+        case "permit_number" -> permitNumber = string(p);
+        default -> unknown(p, EntityService.Entity.class, field);
+      }
+    }
+    return new EntityService.Entity(
+        id,
+        name,
+        tradingName,
+        registrationNumber,
+        email,
+        createdAt,
+        entityType,
+        firstName,
+        lastName,
+        phoneNumber,
+        gender,
+        dateOfBirth,
+        idNumber,
+        idType,
+        idIssueDate,
+        idIssueExpiryDate,
+        city,
+        residency,
+        title,
+        permitNumber);
+  }
+
+  static EntityService.ListEntityResponse listEntityResponse(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    List<EntityService.Entity> entities = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "entities" -> entities = list(p, RecordCodecs::entity);
+        default -> unknown(p, EntityService.ListEntityResponse.class, field);
+      }
+    }
+    return new EntityService.ListEntityResponse(entities);
+  }
+
+  static CardService.CardFeatures cardFeatures(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    boolean domestic = false;
+    boolean international = false;
+    boolean eCommerce = false;
+    boolean atm = false;
+    boolean pos = false;
+    boolean contactless = false;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "domestic" -> domestic = p.getValueAsBoolean();
+        case "international" -> international = p.getValueAsBoolean();
+        case "e_commerce" -> eCommerce = p.getValueAsBoolean();
+        case "atm" -> atm = p.getValueAsBoolean();
+        case "pos" -> pos = p.getValueAsBoolean();
+        case "contactless" -> contactless = p.getValueAsBoolean();
+        default -> unknown(p, CardService.CardFeatures.class, field);
+      }
+    }
+    return new CardService.CardFeatures(domestic, international, eCommerce, atm, pos, contactless);
+  }
+
+  static CardService.CardLimits cardLimits(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    boolean transactionEnabled = false;
+    int transaction = 0;
+    boolean dailyEnabled = false;
+    int daily = 0;
+    boolean monthlyEnabled = false;
+    int monthly = 0;
+    boolean yearlyEnabled = false;
+    int yearly = 0;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "transaction_enabled" -> transactionEnabled = p.getValueAsBoolean();
+        case "transaction" -> transaction = p.getValueAsInt();
+        case "daily_enabled" -> dailyEnabled = p.getValueAsBoolean();
+        case "daily" -> daily = p.getValueAsInt();
+        case "monthly_enabled" -> monthlyEnabled = p.getValueAsBoolean();
+        case "monthly" -> monthly = p.getValueAsInt();
+        case "yearly_enabled" -> yearlyEnabled = p.getValueAsBoolean();
+        case "yearly" -> yearly = p.getValueAsInt();
+        default -> unknown(p, CardService.CardLimits.class, field);
+      }
+    }
+    return new CardService.CardLimits(
+        transactionEnabled,
+        transaction,
+        dailyEnabled,
+        daily,
+        monthlyEnabled,
+        monthly,
+        yearlyEnabled,
+        yearly);
+  }
+
+  static CardService.CardExtras cardExtras(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    CardService.JsonTime autoLock = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "auto_lock" -> autoLock = jsonTime(p);
+        default -> unknown(p, CardService.CardExtras.class, field);
+      }
+    }
+    return new CardService.CardExtras(autoLock);
+  }
+
+  static CardService.JsonTime jsonTime(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    if (p.nextToken() == JsonToken.FIELD_NAME) {
+      unknown(p, CardService.JsonTime.class, p.currentName());
+    }
+    return new CardService.JsonTime();
+  }
+
+  static CardService.CardView cardView(JsonParser p, Strings strings) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    String name = null;
+    int type = 0;
+    int useType = 0;
+    String last4 = null;
+    String dateCreated = null;
+    String userId = null;
+    String orgId = null;
+    CardService.CardFeatures features = null;
+    CardService.CardLimits limits = null;
+    CardService.CardExtras extras = null;
+    String status = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "name" -> name = string(p);
+        case "type" -> type = p.getValueAsInt();
+        case "use_type" -> useType = p.getValueAsInt();
+        case "last_4" -> last4 = string(p);
+        case "date_created" -> dateCreated = string(p);
+        case "user_id" -> userId = string(p);
+        case "org_id" -> orgId = string(p, strings.cardOrgId);
+        case "features" -> features = cardFeatures(p);
+        case "limits" -> limits = cardLimits(p);
+        case "extras" -> extras = cardExtras(p);
+        case "status" -> status = string(p, strings.cardStatus);
+        default -> unknown(p, CardService.CardView.class, field);
+      }
+    }
+    return new CardService.CardView(
+        id,
+        name,
+        type,
+        useType,
+        last4,
+        dateCreated,
+        userId,
+        orgId,
+        features,
+        limits,
+        extras,
+        status);
+  }
+
+  static CardService.ListOrganisationCardsResponse listOrganisationCardsResponse(
+      JsonParser p, Strings strings) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    List<CardService.CardView> cards = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "cards" -> cards = list(p, e -> cardView(e, strings));
+        default -> unknown(p, CardService.ListOrganisationCardsResponse.class, field);
+      }
+    }
+    return new CardService.ListOrganisationCardsResponse(id, cards);
+  }
+
+  static CardService.CardRequestView cardRequestView(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    String name = null;
+    int type = 0;
+    int useType = 0;
+    String createdAt = null;
+    String requestedBy = null;
+    String assignedTo = null;
+    CardService.CardFeatures features = null;
+    CardService.CardLimits limits = null;
+    CardService.CardExtras extras = null;
+    String status = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "name" -> name = string(p);
+        case "type" -> type = p.getValueAsInt();
+        case "use_type" -> useType = p.getValueAsInt();
+        case "created_at" -> createdAt = string(p);
+        case "requested_by" -> requestedBy = string(p);
+        case "assigned_to" -> assignedTo = string(p);
+        case "features" -> features = cardFeatures(p);
+        case "limits" -> limits = cardLimits(p);
+        case "extras" -> extras = cardExtras(p);
+        case "status" -> status = string(p);
+        default -> unknown(p, CardService.CardRequestView.class, field);
+      }
+    }
+    return new CardService.CardRequestView(
+        id,
+        name,
+        type,
+        useType,
+        createdAt,
+        requestedBy,
+        assignedTo,
+        features,
+        limits,
+        extras,
+        status);
+  }
+
+  static CardService.ListOrganisationCardRequestsResponse listOrganisationCardRequestsResponse(
+      JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    List<CardService.CardRequestView> requests = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "requests" -> requests = list(p, RecordCodecs::cardRequestView);
+        default -> unknown(p, CardService.ListOrganisationCardRequestsResponse.class, field);
+      }
+    }
+    return new CardService.ListOrganisationCardRequestsResponse(id, requests);
+  }
+
+  static KYBService.Document document(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String key = null;
+    String docType = null;
+    String rejectionReason = null;
+    boolean approved = false;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "key" -> key = string(p);
+        case "doc_type" -> docType = string(p);
+        case "rejection_reason" -> rejectionReason = string(p);
+        case "approved" -> approved = p.getValueAsBoolean();
+        default -> unknown(p, KYBService.Document.class, field);
+      }
+    }
+    return new KYBService.Document(key, docType, rejectionReason, approved);
+  }
+
+  static KYBService.Director director(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String id = null;
+    String name = null;
+    boolean approved = false;
+    boolean verified = false;
+    List<KYBService.Document> documents = null;
+    boolean verificationSent = false;
+    String idType = null;
+    Map<String, Object> metadata = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "id" -> id = string(p);
+        case "name" -> name = string(p);
+        case "approved" -> approved = p.getValueAsBoolean();
+        case "verified" -> verified = p.getValueAsBoolean();
+        case "documents" -> documents = list(p, RecordCodecs::document);
+        case "verification_sent" -> verificationSent = p.getValueAsBoolean();
+        case "id_type" -> idType = string(p);
+        case "metadata" -> metadata = map(p);
+        default -> unknown(p, KYBService.Director.class, field);
+      }
+    }
+    return new KYBService.Director(
+        id, name, approved, verified, documents, verificationSent, idType, metadata);
+  }
+
+  static KYBService.GetKYBResponse getKYBResponse(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_OBJECT);
+    String entityId = null;
+    List<KYBService.Document> documents = null;
+    List<KYBService.Director> directors = null;
+    Map<String, Object> metadata = null;
+    String state = null;
+    String rejectionReason = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      p.nextToken();
+      switch (field) {
+        case "entity_id" -> entityId = string(p);
+        case "documents" -> documents = list(p, RecordCodecs::document);
+        case "directors" -> directors = list(p, RecordCodecs::director);
+        case "metadata" -> metadata = map(p);
+        case "state" -> state = string(p);
+        case "rejection_reason" -> rejectionReason = string(p);
+        default -> unknown(p, KYBService.GetKYBResponse.class, field);
+      }
+    }
+    return new KYBService.GetKYBResponse(
+        entityId, documents, directors, metadata, state, rejectionReason);
+  }
+
+  static String string(JsonParser p) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (!token.isScalarValue()) {
+      throw new JsonParseException(p, "Expected a scalar value for a String field, got " + token);
+    }
+    return p.getText();
+  }
+
+  /** A string field read through {@code table}, if there is one, straight from the buffer. */
+  private static String string(JsonParser p, StringTable table) throws IOException {
+    if (table == null || p.currentToken() != JsonToken.VALUE_STRING) {
+      return string(p);
+    }
+    return table.get(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+  }
+
+  /** Whole cents read from the parser's own buffer, without building the value's String. */
+  private static long cents(JsonParser p) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token != JsonToken.VALUE_STRING && token != JsonToken.VALUE_NUMBER_INT) {
+      return Money.INVALID;
+    }
+    return Money.parseCents(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+  }
+
+  /** Epoch milliseconds read from the parser's own buffer, without building the value's String. */
+  private static long millis(JsonParser p) throws IOException {
+    if (p.currentToken() != JsonToken.VALUE_STRING) {
+      return Timestamps.INVALID;
+    }
+    return Timestamps.parseMillis(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+  }
+
+  private static Map<String, Object> map(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return p.readValueAs(MAP);
+  }
+
+  private static <T> List<T> list(JsonParser p, Codecs.StreamDecoder<T> element)
+      throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(p, JsonToken.START_ARRAY);
+    List<T> values = new ArrayList<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      values.add(element.decode(p));
+    }
+    return values;
+  }
+
+  /** Rejects a field the record does not declare, as Jackson's default binding does. */
+  private static void unknown(JsonParser p, Class<?> type, String field) throws IOException {
+    throw UnrecognizedPropertyException.from(p, type, field, null);
+  }
+
+  static void expect(JsonParser p, JsonToken expected) throws IOException {
+    if (p.currentToken() != expected) {
+      throw new JsonParseException(p, "Expected " + expected + ", got " + p.currentToken());
+    }
+  }
+}
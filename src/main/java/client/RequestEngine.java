@@ -0,0 +1,278 @@
+package client;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Request path shared by the generated services.
+ *
+ * <p>Everything that does not depend on the request itself is done once, when a service binds its
+ * endpoints: the subject is resolved against the subject params and routed to its {@link
+ * ConnectionPool} lane, the token header set is built and frozen, and the request/response types
+ * are bound to an {@link ObjectWriter} and a {@link Codecs.Decoder} from the shared {@link Codecs}
+ * registry. A call is then one serialization, one {@code request} and one decode.
+ *
+ * <p>Client-side policies from {@link ServiceOptions} wrap the {@link Exchange} of the endpoints
+ * they apply to, also at bind time, so endpoints without a policy keep the plain path.
+ */
+final class RequestEngine {
+
+  private final ConnectionPool pool;
+  private final Headers headers;
+  private final ServiceOptions options;
+  private final Codecs codecs;
+  private final JsonInclude.Include inclusion;
+  private final List<String> subjectParams;
+
+  RequestEngine(
+      ConnectionPool pool,
+      String token,
+      List<String> subjectParams,
+      ServiceOptions options,
+      JsonInclude.Include inclusion) {
+    if (token == null || token.trim().isEmpty()) {
+      throw new IllegalArgumentException("Token cannot be null or empty");
+    }
+    this.pool = pool;
+    // Read-only, so one instance can safely ride along on every request.
+    this.headers = new Headers(new Headers().add("token", token), true);
+    this.options = options;
+    this.codecs = options.codecs();
+    this.inclusion = inclusion;
+    this.subjectParams = subjectParams;
+  }
+
+  <Q, R> Endpoint<Q, R> endpoint(String template, Class<Q> requestType, Class<R> responseType) {
+    return endpoint(template, requestType, this.codecs.decoder(responseType));
+  }
+
+  /** Binds an endpoint whose replies are read by a custom decoder instead of a record codec. */
+  <Q, R> Endpoint<Q, R> endpoint(
+      String template, Class<Q> requestType, Codecs.Decoder<R> decoder) {
+    String subject = resolve(template);
+    return new Endpoint<>(
+        template,
+        subject,
+        this.pool.route(subject),
+        this.codecs.writer(requestType, this.inclusion),
+        decoder);
+  }
+
+  Codecs codecs() {
+    return this.codecs;
+  }
+
+  /** Substitutes each subject param, in order, for the next {@code *} in the template. */
+  String resolve(String template) {
+    StringBuilder epBuilder = new StringBuilder(template);
+    for (String param : this.subjectParams) {
+      int index = epBuilder.indexOf("*");
+      if (index != -1) {
+        epBuilder.replace(index, index + 1, param);
+      }
+    }
+    return epBuilder.toString();
+  }
+
+  /**
+   * Sends one serialized request. The reply future fails with a {@link ServiceException} if the
+   * service answered with an error.
+   */
+  interface Exchange {
+    CompletableFuture<Message> request(byte[] payload);
+  }
+
+  private static Message checked(Message msg) {
+    ServiceException.fromMessage(msg)
+        .ifPresent(
+            e -> {
+              throw e;
+            });
+    return msg;
+  }
+
+  /** A single service method bound to its resolved subject and codecs. */
+  final class Endpoint<Q, R> {
+    private final String template;
+    private final String subject;
+    private final ConnectionPool.Route route;
+    private final ObjectWriter writer;
+    private final Codecs.Decoder<R> decoder;
+    private final Function<Message, R> onReply = this::decode;
+    private boolean retryable;
+    private boolean hedged;
+    private boolean coalesced;
+    private Duration cacheTtl;
+    private List<String> invalidates = List.of();
+    private Exchange exchange;
+
+    private Endpoint(
+        String template,
+        String subject,
+        ConnectionPool.Route route,
+        ObjectWriter writer,
+        Codecs.Decoder<R> decoder) {
+      this.template = template;
+      this.subject = subject;
+      this.route = route;
+      this.writer = writer;
+      this.decoder = decoder;
+      this.exchange = bind();
+    }
+
+    String subject() {
+      return this.subject;
+    }
+
+    /**
+     * Marks the endpoint safe to re-send because its request carries its own idempotency key, so
+     * the {@link RetryPolicy}, if any, applies to it. Call only while the service is being built.
+     */
+    Endpoint<Q, R> retryable() {
+      this.retryable = true;
+      this.exchange = bind();
+      return this;
+    }
+
+    /**
+     * Marks the endpoint read-only, so the {@link HedgePolicy}, if any, may send a request twice.
+     * Call only while the service is being built.
+     */
+    Endpoint<Q, R> hedged() {
+      this.hedged = true;
+      this.exchange = bind();
+      return this;
+    }
+
+    /**
+     * Marks the endpoint read-only, so the {@link CoalescingPolicy}, if any, may answer identical
+     * concurrent calls with one request. Call only while the service is being built.
+     */
+    Endpoint<Q, R> coalesced() {
+      this.coalesced = true;
+      this.exchange = bind();
+      return this;
+    }
+
+    /**
+     * Marks the endpoint a lookup whose replies the {@link ResponseCache}, if any, may keep for
+     * {@code ttl}. Call only while the service is being built.
+     */
+    Endpoint<Q, R> cached(Duration ttl) {
+      this.cacheTtl = ttl;
+      this.exchange = bind();
+      return this;
+    }
+
+    /**
+     * Marks the endpoint a write that changes what the lookups bound from {@code templates} return,
+     * so their cached replies are dropped whenever it completes. Call only while the service is
+     * being built.
+     */
+    Endpoint<Q, R> invalidates(String... templates) {
+      this.invalidates = Stream.of(templates).map(RequestEngine.this::resolve).toList();
+      this.exchange = bind();
+      return this;
+    }
+
+    private Exchange bind() {
+      Exchange exchange =
+          payload -> {
+            CompletableFuture<Message> reply = this.route.request(this.subject, headers, payload);
+            return cancelsSource(reply, reply.thenApply(RequestEngine::checked));
+          };
+      CircuitBreakerPolicy circuitBreaker = options.circuitBreaker();
+      if (circuitBreaker != null) {
+        Exchange unguarded = exchange;
+        CircuitBreakerPolicy.Breaker breaker = circuitBreaker.breaker(this.subject);
+        exchange = payload -> breaker.execute(() -> unguarded.request(payload));
+      }
+      ConcurrencyLimitPolicy concurrencyLimit = options.concurrencyLimit();
+      if (concurrencyLimit != null) {
+        Exchange unlimited = exchange;
+        ConcurrencyLimitPolicy.Limiter limiter = concurrencyLimit.limiter(this.subject);
+        exchange = payload -> limiter.execute(() -> unlimited.request(payload));
+      }
+      HedgePolicy hedge = options.hedge();
+      if (this.hedged && hedge != null) {
+        Exchange single = exchange;
+        HedgePolicy.Tracker tracker = hedge.tracker();
+        exchange = payload -> hedge.execute(tracker, () -> single.request(payload));
+      }
+      RetryPolicy retry = options.retry();
+      if (this.retryable && retry != null) {
+        Exchange once = exchange;
+        exchange = payload -> retry.execute(() -> once.request(payload));
+      }
+      CoalescingPolicy coalescing = options.coalescing();
+      if (this.coalesced && coalescing != null) {
+        Exchange own = exchange;
+        exchange = payload -> coalescing.execute(this.subject, payload, () -> own.request(payload));
+      }
+      ResponseCache cache = options.cache();
+      if (this.cacheTtl != null && cache != null) {
+        Exchange uncached = exchange;
+        long ttlNanos = cache.ttl(this.template, this.cacheTtl).toNanos();
+        exchange =
+            payload ->
+                cache.execute(this.subject, payload, ttlNanos, () -> uncached.request(payload));
+      }
+      if (!this.invalidates.isEmpty() && cache != null) {
+        Exchange write = exchange;
+        List<String> lookups = this.invalidates;
+        // Before the caller sees the reply, so its next lookup misses. Even a failed write may
+        // have been applied.
+        exchange =
+            payload -> {
+              CompletableFuture<Message> sent = write.request(payload);
+              return cancelsSource(
+                  sent, sent.whenComplete((msg, error) -> lookups.forEach(cache::invalidate)));
+            };
+      }
+      return exchange;
+    }
+
+    CompletableFuture<R> request(Q req) {
+      try {
+        byte[] payload = this.writer.writeValueAsBytes(req);
+
+        CompletableFuture<Message> reply = this.exchange.request(payload);
+        return cancelsSource(reply, reply.thenApply(this.onReply));
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    private R decode(Message msg) {
+      try {
+        return this.decoder.decode(msg.getData());
+      } catch (Exception e) {
+        throw new RuntimeException("Serialization Error", e);
+      }
+    }
+  }
+
+  /**
+   * Returns {@code derived}, made to cancel {@code source} when it is cancelled itself. A stage
+   * built with {@code thenApply} or {@code whenComplete} does not pass a caller's {@code cancel()}
+   * back up, so without this the policies below (coalescing, retry, the concurrency limiter) and
+   * the pending request itself would never see it.
+   */
+  private static <T> CompletableFuture<T> cancelsSource(
+      CompletableFuture<?> source, CompletableFuture<T> derived) {
+    derived.whenComplete(
+        (value, error) -> {
+          if (derived.isCancelled()) {
+            source.cancel(false);
+          }
+        });
+    return derived;
+  }
+}
@@ -0,0 +1,288 @@
+package client;
+
+import io.nats.client.Message;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache for lookups that rarely change.
+ *
+ * <p>Replies are cached by subject and serialized request for the endpoint's TTL (see {@code
+ * RequestEngine.Endpoint#cached}), which {@link Builder#ttl(String, Duration)} can override per
+ * method. Past its TTL an entry is still served for the stale window while a single background
+ * request refreshes it; after that it is a miss. Error replies are never cached.
+ *
+ * <p>Writes that change what a lookup returns invalidate every cached reply of that lookup when
+ * they complete (see {@code RequestEngine.Endpoint#invalidates}). A lookup already in flight when
+ * that happens is still answered, but its reply is not cached.
+ *
+ * <p>Once full, the least recently used entry is evicted to make room, but only if the newcomer has
+ * been asked for more often than it, as estimated by a small frequency sketch (the TinyLFU
+ * admission policy). A burst of one-off lookups therefore cannot flush out the entries that are
+ * used all the time.
+ */
+public final class ResponseCache {
+
+  private final int maximumSize;
+  private final long staleNanos;
+  private final Map<String, Duration> ttls;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final FrequencySketch sketch;
+  private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  private ResponseCache(Builder builder) {
+    this.maximumSize = builder.maximumSize;
+    this.staleNanos = builder.staleWhileRevalidate.toNanos();
+    this.ttls = Map.copyOf(builder.ttls);
+    this.sketch = new FrequencySketch(builder.maximumSize);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Counters since the cache was built. {@code staleHits} were served past their TTL while being
+   * refreshed; {@code rejections} were replies not admitted because the cache was full of more
+   * popular ones.
+   */
+  public record Metrics(
+      long hits, long staleHits, long misses, long evictions, long rejections, int size) {}
+
+  public Metrics metrics() {
+    int size;
+    synchronized (this) {
+      size = this.entries.size();
+    }
+    return new Metrics(
+        this.hits.sum(),
+        this.staleHits.sum(),
+        this.misses.sum(),
+        this.evictions.sum(),
+        this.rejections.sum(),
+        size);
+  }
+
+  /** Drops every cached reply. */
+  public synchronized void clear() {
+    this.entries.clear();
+  }
+
+  /** The TTL for the endpoint bound from {@code template}: the override if any, else its own. */
+  Duration ttl(String template, Duration ttl) {
+    return this.ttls.getOrDefault(template, ttl);
+  }
+
+  /** Makes every cached reply for {@code subject}, and any lookup of it in flight, stale. */
+  void invalidate(String subject) {
+    generation(subject).incrementAndGet();
+  }
+
+  private AtomicLong generation(String subject) {
+    return this.generations.computeIfAbsent(subject, s -> new AtomicLong());
+  }
+
+  private record Key(String subject, ByteBuffer payload) {}
+
+  private static final class Entry {
+    private final Message reply;
+    private final long generation;
+    private final long storedAt;
+    private boolean refreshing;
+
+    private Entry(Message reply, long generation, long storedAt) {
+      this.reply = reply;
+      this.generation = generation;
+      this.storedAt = storedAt;
+    }
+  }
+
+  /** Answers from the cache if it can, otherwise sends {@code request} and caches the reply. */
+  CompletableFuture<Message> execute(
+      String subject, byte[] payload, long ttlNanos, Supplier<CompletableFuture<Message>> request) {
+    Key key = new Key(subject, ByteBuffer.wrap(payload));
+    AtomicLong generation = generation(subject);
+    long current = generation.get();
+    long now = System.nanoTime();
+    Entry entry;
+    boolean refresh = false;
+    synchronized (this) {
+      this.sketch.increment(key.hashCode());
+      entry = this.entries.get(key);
+      if (entry != null) {
+        long age = now - entry.storedAt;
+        if (entry.generation != current || age >= ttlNanos + this.staleNanos) {
+          this.entries.remove(key);
+          entry = null;
+        } else if (age >= ttlNanos && !entry.refreshing) {
+          entry.refreshing = true;
+          refresh = true;
+        }
+      }
+    }
+    if (entry == null) {
+      this.misses.increment();
+      return fetch(key, generation, current, request);
+    }
+    if (refresh) {
+      this.staleHits.increment();
+      Entry stale = entry;
+      fetch(key, generation, current, request)
+          .whenComplete(
+              (reply, error) -> {
+                if (error != null) {
+                  synchronized (this) {
+                    stale.refreshing = false; // let a later read try again
+                  }
+                }
+              });
+    } else {
+      this.hits.increment();
+    }
+    return CompletableFuture.completedFuture(entry.reply);
+  }
+
+  private CompletableFuture<Message> fetch(
+      Key key, AtomicLong generation, long sent, Supplier<CompletableFuture<Message>> request) {
+    CompletableFuture<Message> reply;
+    try {
+      reply = request.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    reply.whenComplete(
+        (msg, error) -> {
+          if (error == null) {
+            store(key, generation, sent, msg);
+          }
+        });
+    return reply;
+  }
+
+  private void store(Key key, AtomicLong generation, long sent, Message reply) {
+    Entry entry = new Entry(reply, sent, System.nanoTime());
+    synchronized (this) {
+      if (generation.get() != sent) {
+        return; // invalidated while in flight
+      }
+      if (this.entries.containsKey(key) || this.entries.size() < this.maximumSize) {
+        this.entries.put(key, entry);
+        return;
+      }
+      Iterator<Map.Entry<Key, Entry>> eldest = this.entries.entrySet().iterator();
+      Key victim = eldest.next().getKey();
+      if (this.sketch.frequency(key.hashCode()) <= this.sketch.frequency(victim.hashCode())) {
+        this.rejections.increment();
+        return;
+      }
+      eldest.remove();
+      this.entries.put(key, entry);
+    }
+    this.evictions.increment();
+  }
+
+  /**
+   * Count-min sketch of how often keys were asked for, four 4-bit counters per key. All counters
+   * are halved every {@code 10 * maximumSize} increments, so popularity fades with time.
+   */
+  private static final class FrequencySketch {
+    private final long[] table;
+    private final int mask;
+    private final int resetAt;
+    private int additions;
+
+    private FrequencySketch(int maximumSize) {
+      // Sixteen 4-bit counters per long; about one long per cached entry.
+      int size = Integer.highestOneBit(Math.max(8, maximumSize - 1) << 1);
+      this.table = new long[size];
+      this.mask = size - 1;
+      this.resetAt = 10 * Math.max(1, maximumSize);
+    }
+
+    int frequency(int hash) {
+      int frequency = 15;
+      for (int i = 0; i < 4; i++) {
+        int h = spread(hash, i);
+        frequency = Math.min(frequency, (int) (this.table[h & this.mask] >>> shift(h)) & 15);
+      }
+      return frequency;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        int h = spread(hash, i);
+        int index = h & this.mask;
+        if (((this.table[index] >>> shift(h)) & 15) < 15) {
+          this.table[index] += 1L << shift(h);
+          added = true;
+        }
+      }
+      if (added && ++this.additions >= this.resetAt) {
+        for (int i = 0; i < this.table.length; i++) {
+          this.table[i] = (this.table[i] >>> 1) & 0x7777_7777_7777_7777L;
+        }
+        this.additions /= 2;
+      }
+    }
+
+    private static int spread(int hash, int i) {
+      int h = (hash ^ (i * 0x27D4EB2F)) * 0x9E3779B9;
+      return h ^ (h >>> 15);
+    }
+
+    /** The top four bits pick one of the sixteen counters in the long. */
+    private static int shift(int h) {
+      return (h >>> 28) << 2;
+    }
+  }
+
+  public static final class Builder {
+    private int maximumSize = 10_000;
+    private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+    private final Map<String, Duration> ttls = new HashMap<>();
+
+    private Builder() {}
+
+    /** Most replies kept at once. */
+    public Builder maximumSize(int maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("maximumSize must be at least 1");
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /** How long past its TTL an entry is still served while it is refreshed. */
+    public Builder staleWhileRevalidate(Duration staleWhileRevalidate) {
+      this.staleWhileRevalidate = staleWhileRevalidate;
+      return this;
+    }
+
+    /** Overrides the TTL of one method, given by its subject template (e.g. svc.kyb.*.get). */
+    public Builder ttl(String template, Duration ttl) {
+      this.ttls.put(template, ttl);
+      return this;
+    }
+
+    public ResponseCache build() {
+      return new ResponseCache(this);
+    }
+  }
+}
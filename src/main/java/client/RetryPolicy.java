@@ -0,0 +1,202 @@
+package client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Retries for endpoints that are safe to re-send, such as transfers keyed by {@code clientTxId}.
+ *
+ * <p>A retry re-sends the exact bytes of the first attempt, so the server sees the same {@code
+ * clientTxId} and can deduplicate. Only transient failures are retried:
+ *
+ * <ul>
+ *   <li>a {@link ServiceException} with code 408, 429 or 5xx (except 501)
+ *   <li>a request that timed out or found no responder ({@link TimeoutException}, {@link
+ *       CancellationException}), or failed on the connection ({@link IOException})
+ * </ul>
+ *
+ * <p>Anything else, notably 4xx validation errors and an open circuit breaker, fails immediately.
+ * Retries wait an exponentially growing, fully jittered delay, and are drawn from a budget of
+ * {@link Builder#budget a fraction of calls}, so a struggling backend sees at most that much extra
+ * traffic from this client.
+ */
+public final class RetryPolicy {
+
+  private final int maxAttempts;
+  private final long baseDelayNanos;
+  private final long maxDelayNanos;
+  private final Duration attemptTimeout;
+  private final TokenBudget budget;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder recovered = new LongAdder();
+  private final LongAdder budgetExhausted = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelayNanos = builder.baseDelay.toNanos();
+    this.maxDelayNanos = builder.maxDelay.toNanos();
+    this.attemptTimeout = builder.attemptTimeout;
+    this.budget = new TokenBudget(builder.budgetRatio, builder.budgetReserve);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Counters since the policy was built. */
+  public record Metrics(
+      long calls, long retries, long recovered, long budgetExhausted, long failures) {}
+
+  public Metrics metrics() {
+    return new Metrics(
+        this.calls.sum(),
+        this.retries.sum(),
+        this.recovered.sum(),
+        this.budgetExhausted.sum(),
+        this.failures.sum());
+  }
+
+  /** Whether {@code error} is a transient failure worth another attempt. */
+  public static boolean isRetryable(Throwable error) {
+    error = unwrap(error);
+    if (error instanceof CircuitBreakerPolicy.CircuitOpenException) {
+      return false;
+    }
+    if (error instanceof ServiceException e) {
+      int code = e.getCode();
+      return code == 408 || code == 429 || (code >= 500 && code != 501);
+    }
+    return error instanceof TimeoutException
+        || error instanceof CancellationException
+        || error instanceof IOException;
+  }
+
+  /** Runs {@code attempt}, calling it again on retryable failures. */
+  <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> attempt) {
+    this.calls.increment();
+    this.budget.deposit();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    attempt(attempt, 1, result);
+    return result;
+  }
+
+  private <T> void attempt(
+      Supplier<CompletableFuture<T>> attempt, int n, CompletableFuture<T> result) {
+    if (result.isDone()) {
+      return; // cancelled by the caller while backing off
+    }
+    CompletableFuture<T> reply;
+    try {
+      reply = attempt.get();
+    } catch (RuntimeException e) {
+      reply = CompletableFuture.failedFuture(e);
+    }
+    if (this.attemptTimeout != null) {
+      reply = reply.orTimeout(this.attemptTimeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    reply.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            if (n > 1) {
+              this.recovered.increment();
+            }
+            result.complete(value);
+            return;
+          }
+          Throwable cause = unwrap(error);
+          if (n >= this.maxAttempts || !isRetryable(cause) || result.isDone()) {
+            fail(result, cause);
+            return;
+          }
+          if (!this.budget.tryWithdraw()) {
+            this.budgetExhausted.increment();
+            fail(result, cause);
+            return;
+          }
+          this.retries.increment();
+          CompletableFuture.delayedExecutor(backoff(n), TimeUnit.NANOSECONDS)
+              .execute(() -> attempt(attempt, n + 1, result));
+        });
+  }
+
+  private void fail(CompletableFuture<?> result, Throwable cause) {
+    this.failures.increment();
+    result.completeExceptionally(cause);
+  }
+
+  /** Full jitter: uniform in [0, min(max, base * 2^(n-1))). */
+  private long backoff(int n) {
+    long ceiling = this.baseDelayNanos << Math.min(n - 1, 30);
+    if (ceiling <= 0 || ceiling > this.maxDelayNanos) {
+      ceiling = this.maxDelayNanos;
+    }
+    return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling);
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  public static final class Builder {
+    private int maxAttempts = 3;
+    private Duration baseDelay = Duration.ofMillis(100);
+    private Duration maxDelay = Duration.ofSeconds(2);
+    private Duration attemptTimeout;
+    private double budgetRatio = 0.1;
+    private int budgetReserve = 10;
+
+    private Builder() {}
+
+    /** Attempts per call, including the first; 1 disables retries. */
+    public Builder maxAttempts(int maxAttempts) {
+      if (maxAttempts < 1) {
+        throw new IllegalArgumentException("maxAttempts must be at least 1");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /** Backoff before the first retry; doubles for each one after, up to {@code maxDelay}. */
+    public Builder backoff(Duration baseDelay, Duration maxDelay) {
+      this.baseDelay = baseDelay;
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /** Gives up on an attempt after this long; by default the NATS request timeout applies. */
+    public Builder attemptTimeout(Duration attemptTimeout) {
+      this.attemptTimeout = attemptTimeout;
+      return this;
+    }
+
+    /**
+     * Retries allowed per call over time ({@code ratio}), plus a {@code reserve} available up
+     * front. The defaults are 10% and 10.
+     */
+    public Builder budget(double ratio, int reserve) {
+      this.budgetRatio = ratio;
+      this.budgetReserve = reserve;
+      return this;
+    }
+
+    public RetryPolicy build() {
+      return new RetryPolicy(this);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package client;
+
+/**
+ * Client-side policies shared by every service built with them.
+ *
+ * <p>The defaults are the shared {@link Codecs} and no policies, which is the plain request path:
+ * one serialization, one {@code request}, one decode. Each policy is opt-in, and each only applies
+ * to the endpoints it is safe for; see the policy's own documentation.
+ *
+ * <p>Policies keep their state (budgets, metrics) in the instance, so services that should share
+ * it must be built from the same {@code ServiceOptions}.
+ */
+public final class ServiceOptions {
+
+  private static final ServiceOptions DEFAULTS = builder().build();
+
+  private final Codecs codecs;
+  private final RetryPolicy retry;
+  private final HedgePolicy hedge;
+  private final CircuitBreakerPolicy circuitBreaker;
+  private final ConcurrencyLimitPolicy concurrencyLimit;
+  private final CoalescingPolicy coalescing;
+  private final ResponseCache cache;
+  private final TransactionIndex transactionIndex;
+
+  private ServiceOptions(Builder builder) {
+    this.codecs = builder.codecs;
+    this.retry = builder.retry;
+    this.hedge = builder.hedge;
+    this.circuitBreaker = builder.circuitBreaker;
+    this.concurrencyLimit = builder.concurrencyLimit;
+    this.coalescing = builder.coalescing;
+    this.cache = builder.cache;
+    this.transactionIndex = builder.transactionIndex;
+  }
+
+  /** Shared codecs, no policies. */
+  public static ServiceOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /** The given codecs, no policies. */
+  public static ServiceOptions of(Codecs codecs) {
+    return builder().codecs(codecs).build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Codecs codecs() {
+    return this.codecs;
+  }
+
+  /** Retry policy for idempotent writes, or null if they are not retried. */
+  public RetryPolicy retry() {
+    return this.retry;
+  }
+
+  /** Hedging for read-only endpoints, or null if reads are not hedged. */
+  public HedgePolicy hedge() {
+    return this.hedge;
+  }
+
+  /** Per-subject circuit breakers for every endpoint, or null if there are none. */
+  public CircuitBreakerPolicy circuitBreaker() {
+    return this.circuitBreaker;
+  }
+
+  /** Per-service limits on requests in flight, or null if they are unlimited. */
+  public ConcurrencyLimitPolicy concurrencyLimit() {
+    return this.concurrencyLimit;
+  }
+
+  /** Coalescing of identical concurrent reads, or null if every call sends its own request. */
+  public CoalescingPolicy coalescing() {
+    return this.coalescing;
+  }
+
+  /** Read-through cache for rarely changing lookups, or null if nothing is cached. */
+  public ResponseCache cache() {
+    return this.cache;
+  }
+
+  /** Transactions seen in {@code list} replies, or null if get_transaction always asks. */
+  public TransactionIndex transactionIndex() {
+    return this.transactionIndex;
+  }
+
+  public static final class Builder {
+    private Codecs codecs = Codecs.shared();
+    private RetryPolicy retry;
+    private HedgePolicy hedge;
+    private CircuitBreakerPolicy circuitBreaker;
+    private ConcurrencyLimitPolicy concurrencyLimit;
+    private CoalescingPolicy coalescing;
+    private ResponseCache cache;
+    private TransactionIndex transactionIndex;
+
+    private Builder() {}
+
+    public Builder codecs(Codecs codecs) {
+      this.codecs = codecs;
+      return this;
+    }
+
+    public Builder retry(RetryPolicy retry) {
+      this.retry = retry;
+      return this;
+    }
+
+    public Builder hedge(HedgePolicy hedge) {
+      this.hedge = hedge;
+      return this;
+    }
+
+    public Builder circuitBreaker(CircuitBreakerPolicy circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    public Builder concurrencyLimit(ConcurrencyLimitPolicy concurrencyLimit) {
+      this.concurrencyLimit = concurrencyLimit;
+      return this;
+    }
+
+    public Builder coalescing(CoalescingPolicy coalescing) {
+      this.coalescing = coalescing;
+      return this;
+    }
+
+    public Builder cache(ResponseCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    public Builder transactionIndex(TransactionIndex transactionIndex) {
+      this.transactionIndex = transactionIndex;
+      return this;
+    }
+
+    public ServiceOptions build() {
+      return new ServiceOptions(this);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package client;
+
+/**
+ * Bounded table of canonical {@code String}s for one decoded field, so a value repeated across the
+ * elements of a large list is held once rather than once per element.
+ *
+ * <p>{@link #get} looks the value up by its characters straight out of the parser's buffer, so a
+ * repeat costs a hash and a compare and allocates nothing. A value not yet in the table is created
+ * once and takes the slot; when its slots are all taken it replaces the one it hashed to, so the
+ * table never grows past its size and a field with more distinct values than that just shares less.
+ * Values longer than {@link #MAX_LENGTH} are never kept.
+ *
+ * <p>Safe to share between decoding threads without locking: slots hold immutable strings, and two
+ * threads racing on one slot at worst each create their own copy.
+ */
+final class StringTable {
+
+  /** Longest value kept; longer ones are free text, unlikely to repeat. */
+  static final int MAX_LENGTH = 64;
+
+  private static final int PROBES = 4;
+
+  private final String[] slots;
+  private final int mask;
+
+  /** A table of {@code size} slots, rounded up to a power of two. */
+  StringTable(int size) {
+    int capacity = Integer.highestOneBit(Math.max(PROBES, size) - 1) << 1;
+    this.slots = new String[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /** The canonical string for {@code chars[offset, offset + length)}. */
+  String get(char[] chars, int offset, int length) {
+    if (length > MAX_LENGTH) {
+      return new String(chars, offset, length);
+    }
+    int h = 0;
+    for (int i = offset; i < offset + length; i++) {
+      h = 31 * h + chars[i];
+    }
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+
+    int home = h & this.mask;
+    int free = -1;
+    for (int i = 0; i < PROBES; i++) {
+      int slot = (home + i) & this.mask;
+      String candidate = this.slots[slot];
+      if (candidate == null) {
+        free = free < 0 ? slot : free;
+      } else if (matches(candidate, chars, offset, length)) {
+        return candidate;
+      }
+    }
+    String value = new String(chars, offset, length);
+    this.slots[free < 0 ? home : free] = value;
+    return value;
+  }
+
+  private static boolean matches(String candidate, char[] chars, int offset, int length) {
+    if (candidate.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (candidate.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
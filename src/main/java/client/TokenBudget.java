@@ -0,0 +1,57 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps extra traffic (retries, hedges) at a fraction of the traffic that earns it.
+ *
+ * <p>Every primary call deposits {@code ratio} tokens and every extra request withdraws one, so
+ * over time extra requests stay under {@code ratio} of primary calls. The balance starts at, and is
+ * capped by, a small reserve, which lets a quiet client still retry but stops a long healthy
+ * stretch from banking enough tokens to flood a backend when it starts failing.
+ */
+final class TokenBudget {
+
+  // Balance is kept in thousandths of a token so small ratios don't round to nothing.
+  private static final long UNIT = 1000;
+
+  private final long deposit;
+  private final long max;
+  private final AtomicLong balance;
+
+  TokenBudget(double ratio, int reserve) {
+    if (ratio < 0 || ratio > 1) {
+      throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+    }
+    if (reserve < 0) {
+      throw new IllegalArgumentException("Budget reserve must not be negative");
+    }
+    this.deposit = Math.round(ratio * UNIT);
+    this.max = Math.max(reserve, 1) * UNIT;
+    this.balance = new AtomicLong(reserve * UNIT);
+  }
+
+  void deposit() {
+    if (this.deposit == 0) {
+      return;
+    }
+    long current;
+    do {
+      current = this.balance.get();
+      if (current >= this.max) {
+        return;
+      }
+    } while (!this.balance.compareAndSet(current, Math.min(this.max, current + this.deposit)));
+  }
+
+  boolean tryWithdraw() {
+    long current;
+    do {
+      current = this.balance.get();
+      if (current < UNIT) {
+        return false;
+      }
+    } while (!this.balance.compareAndSet(current, current - UNIT));
+    return true;
+  }
+}
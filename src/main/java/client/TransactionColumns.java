@@ -0,0 +1,330 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented copy of a transaction history, for filters and aggregates over millions of rows.
+ *
+ * <p>Money fields are kept as {@code long} cents and {@code date} as epoch milliseconds, each in
+ * its own primitive array, and {@code status}, {@code tx_type} and {@code tx_payment_type} as
+ * {@code int} codes into a per-column dictionary. A query touches only the columns it uses, as
+ * sequential reads of primitives, instead of chasing seventeen {@code String}s per record.
+ *
+ * <p>Filters return a {@link Selection}, a bitmap with one bit per row, which {@link
+ * Selection#and} and {@link Selection#or} combine a word (64 rows) at a time; {@link #sum} and
+ * {@link #groupBy} then aggregate the selected rows. Values that were missing or did not parse
+ * ({@link Money#INVALID}, {@link #NO_DATE}) never match a range and are left out of sums.
+ *
+ * <p>Rows are appended by a single thread; once loaded, any number of threads may query.
+ */
+public final class TransactionColumns {
+
+  /** Epoch value stored for a missing or unparseable date. */
+  public static final long NO_DATE = Timestamps.INVALID;
+
+  public enum Measure {
+    AMOUNT,
+    FEE,
+    CREDIT,
+    DEBIT,
+    RUNNING_BALANCE
+  }
+
+  public enum Dimension {
+    STATUS,
+    TX_TYPE,
+    PAYMENT_TYPE
+  }
+
+  /** Rows in one group: how many, and the sum of the measure over those with a value. */
+  public record Group(long count, long sumCents) {}
+
+  private int size;
+  private String[] txId = new String[1024];
+  private long[] date = new long[1024];
+  private final long[][] measures = new long[Measure.values().length][1024];
+  private final int[][] codes = new int[Dimension.values().length][1024];
+  private final Dictionary[] dictionaries = {new Dictionary(), new Dictionary(), new Dictionary()};
+
+  public int size() {
+    return this.size;
+  }
+
+  public void add(AccountService.Transaction tx) {
+    long when = Timestamps.parseMillis(tx.date());
+    int row = append(tx.tx_id(), when, tx.status(), tx.tx_type(), tx.tx_payment_type());
+    this.measures[Measure.AMOUNT.ordinal()][row] = Money.parseCents(tx.amount());
+    this.measures[Measure.FEE.ordinal()][row] = Money.parseCents(tx.fee());
+    this.measures[Measure.CREDIT.ordinal()][row] = Money.parseCents(tx.credit());
+    this.measures[Measure.DEBIT.ordinal()][row] = Money.parseCents(tx.debit());
+    this.measures[Measure.RUNNING_BALANCE.ordinal()][row] = Money.parseCents(tx.running_balance());
+  }
+
+  /** Adds a row from a holder filled in full (not {@link MutableTransaction#amountsOnly}). */
+  public void add(MutableTransaction tx) {
+    int row = append(tx.txId, tx.dateMillis, tx.status, tx.txType, tx.txPaymentType);
+    this.measures[Measure.AMOUNT.ordinal()][row] = tx.amountCents;
+    this.measures[Measure.FEE.ordinal()][row] = tx.feeCents;
+    this.measures[Measure.CREDIT.ordinal()][row] = tx.creditCents;
+    this.measures[Measure.DEBIT.ordinal()][row] = tx.debitCents;
+    this.measures[Measure.RUNNING_BALANCE.ordinal()][row] = tx.runningBalanceCents;
+  }
+
+  /** Adds every remaining transaction of {@code cursor}, through one reused holder. */
+  public void addAll(TransactionCursor cursor) {
+    MutableTransaction holder = new MutableTransaction();
+    while (cursor.next(holder)) {
+      add(holder);
+    }
+  }
+
+  private int append(String id, long when, String status, String txType, String paymentType) {
+    if (this.size == this.date.length) {
+      grow();
+    }
+    int row = this.size++;
+    this.txId[row] = id;
+    this.date[row] = when;
+    this.codes[Dimension.STATUS.ordinal()][row] = this.dictionaries[0].code(status);
+    this.codes[Dimension.TX_TYPE.ordinal()][row] = this.dictionaries[1].code(txType);
+    this.codes[Dimension.PAYMENT_TYPE.ordinal()][row] = this.dictionaries[2].code(paymentType);
+    return row;
+  }
+
+  private void grow() {
+    int capacity = this.date.length * 2;
+    this.txId = Arrays.copyOf(this.txId, capacity);
+    this.date = Arrays.copyOf(this.date, capacity);
+    for (int m = 0; m < this.measures.length; m++) {
+      this.measures[m] = Arrays.copyOf(this.measures[m], capacity);
+    }
+    for (int d = 0; d < this.codes.length; d++) {
+      this.codes[d] = Arrays.copyOf(this.codes[d], capacity);
+    }
+  }
+
+  public String txId(int row) {
+    return this.txId[row];
+  }
+
+  public long epochMillis(int row) {
+    return this.date[row];
+  }
+
+  public long cents(Measure measure, int row) {
+    return this.measures[measure.ordinal()][row];
+  }
+
+  public String value(Dimension dimension, int row) {
+    return this.dictionaries[dimension.ordinal()].value(this.codes[dimension.ordinal()][row]);
+  }
+
+  /** Every row. */
+  public Selection all() {
+    Selection all = new Selection(this.size);
+    Arrays.fill(all.words, -1L);
+    all.trim();
+    return all;
+  }
+
+  /** Rows whose {@code dimension} is one of {@code values}; null matches a missing value. */
+  public Selection where(Dimension dimension, String... values) {
+    Dictionary dictionary = this.dictionaries[dimension.ordinal()];
+    boolean[] wanted = new boolean[dictionary.size()];
+    for (String value : values) {
+      int code = dictionary.find(value);
+      if (code >= 0) {
+        wanted[code] = true;
+      }
+    }
+    int[] column = this.codes[dimension.ordinal()];
+    Selection selection = new Selection(this.size);
+    for (int w = 0, base = 0; base < this.size; w++, base += 64) {
+      int end = Math.min(base + 64, this.size);
+      long word = 0;
+      for (int row = base; row < end; row++) {
+        word |= (wanted[column[row]] ? 1L : 0L) << row;
+      }
+      selection.words[w] = word;
+    }
+    return selection;
+  }
+
+  /** Rows dated in {@code [fromMillis, toMillis)}. */
+  public Selection dateBetween(long fromMillis, long toMillis) {
+    return range(this.date, fromMillis, toMillis - 1);
+  }
+
+  /** Rows whose {@code measure} is in {@code [minCents, maxCents]}. */
+  public Selection between(Measure measure, long minCents, long maxCents) {
+    return range(this.measures[measure.ordinal()], minCents, maxCents);
+  }
+
+  private Selection range(long[] column, long min, long max) {
+    // Missing values are Long.MIN_VALUE, so they fall outside any range with a larger min.
+    long lower = Math.max(min, Long.MIN_VALUE + 1);
+    Selection selection = new Selection(this.size);
+    // A word at a time, without a branch per row.
+    for (int w = 0, base = 0; base < this.size; w++, base += 64) {
+      int end = Math.min(base + 64, this.size);
+      long word = 0;
+      for (int row = base; row < end; row++) {
+        long v = column[row];
+        word |= (v >= lower & v <= max ? 1L : 0L) << row;
+      }
+      selection.words[w] = word;
+    }
+    return selection;
+  }
+
+  /** Sum in cents of {@code measure} over the selected rows that have a value. */
+  public long sum(Measure measure, Selection selection) {
+    long[] column = this.measures[measure.ordinal()];
+    long sum = 0;
+    long[] words = selection.words;
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      int base = w << 6;
+      if (word == -1L) {
+        for (int row = base; row < base + 64; row++) {
+          long v = column[row];
+          sum += v == Money.INVALID ? 0 : v;
+        }
+      } else {
+        while (word != 0) {
+          long v = column[base + Long.numberOfTrailingZeros(word)];
+          sum += v == Money.INVALID ? 0 : v;
+          word &= word - 1;
+        }
+      }
+    }
+    return sum;
+  }
+
+  /** Count and sum of {@code measure} for the selected rows, per value of {@code dimension}. */
+  public Map<String, Group> groupBy(Dimension dimension, Measure measure, Selection selection) {
+    Dictionary dictionary = this.dictionaries[dimension.ordinal()];
+    int[] column = this.codes[dimension.ordinal()];
+    long[] values = this.measures[measure.ordinal()];
+    long[] counts = new long[dictionary.size()];
+    long[] sums = new long[dictionary.size()];
+    long[] words = selection.words;
+    for (int w = 0; w < words.length; w++) {
+      long word = words[w];
+      int base = w << 6;
+      while (word != 0) {
+        int row = base + Long.numberOfTrailingZeros(word);
+        int code = column[row];
+        long v = values[row];
+        counts[code]++;
+        sums[code] += v == Money.INVALID ? 0 : v;
+        word &= word - 1;
+      }
+    }
+    Map<String, Group> groups = new LinkedHashMap<>();
+    for (int code = 0; code < counts.length; code++) {
+      if (counts[code] > 0) {
+        groups.put(dictionary.value(code), new Group(counts[code], sums[code]));
+      }
+    }
+    return groups;
+  }
+
+  /** A set of rows, one bit each. Only combine selections taken at the same {@link #size()}. */
+  public static final class Selection {
+    private final int size;
+    private final long[] words;
+
+    private Selection(int size) {
+      this.size = size;
+      this.words = new long[(size + 63) >>> 6];
+    }
+
+    public Selection and(Selection other) {
+      Selection result = new Selection(this.size);
+      for (int w = 0; w < this.words.length; w++) {
+        result.words[w] = this.words[w] & other.words[w];
+      }
+      return result;
+    }
+
+    public Selection or(Selection other) {
+      Selection result = new Selection(this.size);
+      for (int w = 0; w < this.words.length; w++) {
+        result.words[w] = this.words[w] | other.words[w];
+      }
+      return result;
+    }
+
+    public Selection not() {
+      Selection result = new Selection(this.size);
+      for (int w = 0; w < this.words.length; w++) {
+        result.words[w] = ~this.words[w];
+      }
+      result.trim();
+      return result;
+    }
+
+    public boolean contains(int row) {
+      return (this.words[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int count() {
+      int count = 0;
+      for (long word : this.words) {
+        count += Long.bitCount(word);
+      }
+      return count;
+    }
+
+    /** Clears the bits past the last row. */
+    private void trim() {
+      if ((this.size & 63) != 0) {
+        this.words[this.words.length - 1] &= (1L << this.size) - 1;
+      }
+    }
+  }
+
+  /** Value ↔ code for one low-cardinality column; code 0 is a missing value. */
+  private static final class Dictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    private Dictionary() {
+      this.values.add(null);
+    }
+
+    int code(String value) {
+      if (value == null) {
+        return 0;
+      }
+      Integer code = this.codes.get(value);
+      if (code == null) {
+        code = this.values.size();
+        this.codes.put(value, code);
+        this.values.add(value);
+      }
+      return code;
+    }
+
+    int find(String value) {
+      if (value == null) {
+        return 0;
+      }
+      return this.codes.getOrDefault(value, -1);
+    }
+
+    String value(int code) {
+      return this.values.get(code);
+    }
+
+    int size() {
+      return this.values.size();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Incremental reader over a {@code GetTransactionsResponse} body.
+ *
+ * <p>Transactions are parsed one at a time as the caller advances, so only the element being read
+ * is live no matter how long the history is. Use {@link #next(MutableTransaction)} to reuse a
+ * single holder across elements, or the {@link Iterator}/{@link #stream()} views to get a record
+ * each. Null elements in the array are skipped.
+ *
+ * <p>{@link #account_id()} is available as soon as the cursor opens when the server sends it ahead
+ * of the list, and once the cursor is exhausted otherwise. A cursor is single-use and not
+ * thread-safe.
+ */
+public final class TransactionCursor
+    implements Iterator<AccountService.Transaction>, AutoCloseable {
+
+  private final JsonParser p;
+  private final RecordCodecs.Strings strings;
+  private String accountId;
+  private boolean positioned;
+  private boolean done;
+
+  private TransactionCursor(JsonParser p, RecordCodecs.Strings strings) {
+    this.p = p;
+    this.strings = strings;
+  }
+
+  /** Opens a cursor on a parser that has not been advanced yet. */
+  static TransactionCursor open(JsonParser p, RecordCodecs.Strings strings) throws IOException {
+    TransactionCursor cursor = new TransactionCursor(p, strings);
+    p.nextToken();
+    RecordCodecs.expect(p, JsonToken.START_OBJECT);
+    cursor.readFieldsUntilTransactions();
+    return cursor;
+  }
+
+  public String account_id() {
+    return accountId;
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      return advance();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public AccountService.Transaction next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    this.positioned = false;
+    try {
+      return RecordCodecs.transaction(p, strings);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the next transaction into {@code into}.
+   *
+   * @return false once the list is exhausted, leaving {@code into} untouched
+   */
+  public boolean next(MutableTransaction into) {
+    if (!hasNext()) {
+      return false;
+    }
+    this.positioned = false;
+    try {
+      RecordCodecs.transaction(p, into, strings);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return true;
+  }
+
+  public Stream<AccountService.Transaction> stream() {
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(this::close);
+  }
+
+  @Override
+  public void close() {
+    this.done = true;
+    try {
+      p.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Moves onto the start of the next non-null element; false when the array has ended. */
+  private boolean advance() throws IOException {
+    if (positioned) {
+      return true;
+    }
+    while (!done) {
+      JsonToken token = p.nextToken();
+      if (token == JsonToken.START_OBJECT) {
+        positioned = true;
+        return true;
+      }
+      if (token == JsonToken.END_ARRAY) {
+        // Fields after the list (e.g. a trailing account_id) are still worth picking up.
+        readFieldsUntilTransactions();
+      } else if (token != JsonToken.VALUE_NULL) {
+        RecordCodecs.expect(p, JsonToken.START_OBJECT);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Consumes top-level fields until the transactions array is entered, or the body ends. Leaves
+   * the parser on the array's START_ARRAY, with {@code done} cleared, when there is one.
+   */
+  private void readFieldsUntilTransactions() throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String field = p.currentName();
+      JsonToken value = p.nextToken();
+      if ("account_id".equals(field)) {
+        this.accountId = RecordCodecs.string(p);
+      } else if ("transactions".equals(field) && value == JsonToken.START_ARRAY) {
+        return;
+      } else {
+        p.skipChildren();
+      }
+    }
+    this.done = true;
+  }
+}
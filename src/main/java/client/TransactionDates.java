@@ -0,0 +1,191 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Each account's transactions sorted by date, for range queries in O(log n).
+ *
+ * <p>{@link #put} replaces an account's entry with one list reply, which is its full history: each
+ * {@code date} is parsed to epoch milliseconds once (see {@link Timestamps}; from a cursor, already
+ * at decode time) and the entry is sorted once, by date and then by list order. {@link #between}
+ * and {@link #count} then binary-search the sorted {@code long}s, with no parsing or comparing of
+ * date strings per query. Transactions whose date is missing or does not parse are left out.
+ *
+ * <p>An account's entry is never changed once built, so queries take no lock and any number of
+ * threads may query while others put.
+ */
+public final class TransactionDates {
+
+  private final ConcurrentMap<String, Dates> accounts = new ConcurrentHashMap<>();
+
+  /** Indexes a list reply under its own {@code account_id}; a reply without one is ignored. */
+  public void put(AccountService.GetTransactionsResponse response) {
+    if (response != null && response.account_id() != null) {
+      put(response.account_id(), response.transactions());
+    }
+  }
+
+  /** Replaces the account's entry with {@code transactions}. */
+  public void put(String accountId, List<AccountService.Transaction> transactions) {
+    Dates dates = new Dates(transactions == null ? 0 : transactions.size());
+    if (transactions != null) {
+      for (AccountService.Transaction tx : transactions) {
+        if (tx != null) {
+          dates.add(Timestamps.parseMillis(tx.date()), tx);
+        }
+      }
+    }
+    this.accounts.put(accountId, dates.sorted());
+  }
+
+  /** Replaces the account's entry with the remaining transactions of {@code cursor}. */
+  public void put(String accountId, TransactionCursor cursor) {
+    Dates dates = new Dates(1024);
+    MutableTransaction holder = new MutableTransaction();
+    while (cursor.next(holder)) {
+      dates.add(holder.date_millis(), holder.toRecord());
+    }
+    this.accounts.put(accountId, dates.sorted());
+  }
+
+  public void remove(String accountId) {
+    this.accounts.remove(accountId);
+  }
+
+  /** Transactions indexed for the account; 0 if it has none. */
+  public int size(String accountId) {
+    Dates dates = this.accounts.get(accountId);
+    return dates == null ? 0 : dates.size;
+  }
+
+  /** The account's transactions dated in {@code [fromMillis, toMillis)}, oldest first. */
+  public List<AccountService.Transaction> between(
+      String accountId, long fromMillis, long toMillis) {
+    Dates dates = this.accounts.get(accountId);
+    if (dates == null) {
+      return List.of();
+    }
+    int from = dates.lowerBound(fromMillis);
+    int to = dates.lowerBound(toMillis);
+    List<AccountService.Transaction> between = new ArrayList<>(Math.max(0, to - from));
+    for (int i = from; i < to; i++) {
+      between.add(dates.values[i]);
+    }
+    return between;
+  }
+
+  /** How many of the account's transactions are dated in {@code [fromMillis, toMillis)}. */
+  public int count(String accountId, long fromMillis, long toMillis) {
+    Dates dates = this.accounts.get(accountId);
+    if (dates == null) {
+      return 0;
+    }
+    return Math.max(0, dates.lowerBound(toMillis) - dates.lowerBound(fromMillis));
+  }
+
+  /** One account's dates and transactions, in parallel arrays. */
+  private static final class Dates {
+    private long[] millis;
+    private AccountService.Transaction[] values;
+    private int size;
+
+    private Dates(int capacity) {
+      this.millis = new long[Math.max(16, capacity)];
+      this.values = new AccountService.Transaction[this.millis.length];
+    }
+
+    void add(long when, AccountService.Transaction tx) {
+      if (when == Timestamps.INVALID) {
+        return;
+      }
+      if (this.size == this.millis.length) {
+        this.millis = Arrays.copyOf(this.millis, this.size * 2);
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.millis[this.size] = when;
+      this.values[this.size++] = tx;
+    }
+
+    /** The first position dated at or after {@code when}. */
+    int lowerBound(long when) {
+      int low = 0;
+      int high = this.size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (this.millis[mid] < when) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /** Sorts in place and returns this. Lists usually arrive in date order, either way round. */
+    Dates sorted() {
+      boolean ascending = true;
+      boolean descending = true;
+      for (int i = 1; i < this.size && (ascending || descending); i++) {
+        ascending &= this.millis[i - 1] <= this.millis[i];
+        descending &= this.millis[i - 1] > this.millis[i];
+      }
+      if (descending && !ascending) {
+        for (int i = 0, j = this.size - 1; i < j; i++, j--) {
+          long when = this.millis[i];
+          this.millis[i] = this.millis[j];
+          this.millis[j] = when;
+          AccountService.Transaction tx = this.values[i];
+          this.values[i] = this.values[j];
+          this.values[j] = tx;
+        }
+      } else if (!ascending) {
+        mergeSort(this.millis.clone(), this.values.clone(), this.millis, this.values, 0, this.size);
+      }
+      return this;
+    }
+
+    /**
+     * Stable merge sort of {@code [from, to)} of the parallel arrays into {@code millis/values},
+     * using {@code srcMillis/srcValues}, which start as a copy of them, as scratch.
+     */
+    private static void mergeSort(
+        long[] srcMillis,
+        AccountService.Transaction[] srcValues,
+        long[] millis,
+        AccountService.Transaction[] values,
+        int from,
+        int to) {
+      if (to - from < 16) {
+        for (int i = from + 1; i < to; i++) {
+          long when = millis[i];
+          AccountService.Transaction tx = values[i];
+          int j = i - 1;
+          for (; j >= from && millis[j] > when; j--) {
+            millis[j + 1] = millis[j];
+            values[j + 1] = values[j];
+          }
+          millis[j + 1] = when;
+          values[j + 1] = tx;
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      // Sort each half into the scratch arrays, then merge them back.
+      mergeSort(millis, values, srcMillis, srcValues, from, mid);
+      mergeSort(millis, values, srcMillis, srcValues, mid, to);
+      for (int i = from, left = from, right = mid; i < to; i++) {
+        if (right >= to || (left < mid && srcMillis[left] <= srcMillis[right])) {
+          millis[i] = srcMillis[left];
+          values[i] = srcValues[left++];
+        } else {
+          millis[i] = srcMillis[right];
+          values[i] = srcValues[right++];
+        }
+      }
+    }
+  }
+}
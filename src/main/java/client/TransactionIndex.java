@@ -0,0 +1,299 @@
+package client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transactions already seen in {@code list} replies, by {@code tx_id} and by {@code parent_tx_id},
+ * so {@link AccountService#get_transaction} can answer without a round trip.
+ *
+ * <p>Up to {@link Builder#capacity} transactions are kept, oldest out first; re-listing one
+ * refreshes it in place. A transaction older than {@link Builder#maxAge} is not served, since its
+ * status may have moved on since. Only ids in UUID form are indexed; lookups of any other id go to
+ * the network.
+ *
+ * <p>Ids are stored as two {@code long}s in parallel arrays, and both lookups are open-addressed
+ * tables of {@code int} positions into those arrays, so the index itself adds no object per
+ * transaction. Per million transactions of capacity it takes about 64 MB: 48 bytes per position
+ * (two ids, timestamp, sibling link, record reference) plus two 2M-entry {@code int} tables. The
+ * {@link AccountService.Transaction} records it holds are the larger cost, typically 0.5-1 KB
+ * each with their strings, depending on field lengths.
+ */
+public final class TransactionIndex {
+
+  private static final int EMPTY = -1;
+
+  private final int capacity;
+  private final long maxAgeNanos;
+
+  // Per position, written in insertion order as a ring.
+  private final long[] txHi;
+  private final long[] txLo;
+  private final long[] parentHi;
+  private final long[] parentLo;
+  private final long[] storedAt;
+  private final int[] olderSibling;
+  private final AccountService.Transaction[] values;
+
+  // Linear-probing tables of positions: by tx_id, and by parent_tx_id to its newest child.
+  private final int[] byTx;
+  private final int[] byParent;
+  private final int mask;
+
+  private int next;
+  private int size;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  private TransactionIndex(Builder builder) {
+    this.capacity = builder.capacity;
+    this.maxAgeNanos = builder.maxAge.toNanos();
+    this.txHi = new long[this.capacity];
+    this.txLo = new long[this.capacity];
+    this.parentHi = new long[this.capacity];
+    this.parentLo = new long[this.capacity];
+    this.storedAt = new long[this.capacity];
+    this.olderSibling = new int[this.capacity];
+    this.values = new AccountService.Transaction[this.capacity];
+    int tableSize = Integer.highestOneBit(Math.max(2, this.capacity) - 1) << 2; // load <= 1/2
+    this.byTx = new int[tableSize];
+    this.byParent = new int[tableSize];
+    this.mask = tableSize - 1;
+    Arrays.fill(this.byTx, EMPTY);
+    Arrays.fill(this.byParent, EMPTY);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Counters since the index was built; {@code expired} lookups found an entry too old to use. */
+  public record Metrics(int size, long hits, long misses, long expired) {}
+
+  public Metrics metrics() {
+    int size;
+    synchronized (this) {
+      size = this.size;
+    }
+    return new Metrics(size, this.hits.sum(), this.misses.sum(), this.expired.sum());
+  }
+
+  public void putAll(Collection<AccountService.Transaction> transactions) {
+    long now = System.nanoTime();
+    synchronized (this) {
+      for (AccountService.Transaction tx : transactions) {
+        put(tx, now);
+      }
+    }
+  }
+
+  public synchronized void put(AccountService.Transaction tx) {
+    put(tx, System.nanoTime());
+  }
+
+  /** The transaction with {@code txId}, or null if it is not indexed or too old to serve. */
+  public AccountService.Transaction get(String txId) {
+    if (!isUuid(txId)) {
+      this.misses.increment();
+      return null;
+    }
+    long hi = half(txId, 0);
+    long lo = half(txId, 19);
+    synchronized (this) {
+      int at = this.byTx[find(this.byTx, this.txHi, this.txLo, hi, lo)];
+      if (at == EMPTY) {
+        this.misses.increment();
+        return null;
+      }
+      if (System.nanoTime() - this.storedAt[at] > this.maxAgeNanos) {
+        this.expired.increment();
+        return null;
+      }
+      this.hits.increment();
+      return this.values[at];
+    }
+  }
+
+  /** Indexed transactions, still fresh, whose {@code parent_tx_id} is {@code parentTxId}. */
+  public List<AccountService.Transaction> children(String parentTxId) {
+    List<AccountService.Transaction> children = new ArrayList<>();
+    if (!isUuid(parentTxId)) {
+      return children;
+    }
+    long hi = half(parentTxId, 0);
+    long lo = half(parentTxId, 19);
+    long now = System.nanoTime();
+    synchronized (this) {
+      int at = this.byParent[find(this.byParent, this.parentHi, this.parentLo, hi, lo)];
+      while (at != EMPTY) {
+        if (now - this.storedAt[at] <= this.maxAgeNanos) {
+          children.add(this.values[at]);
+        }
+        int older = this.olderSibling[at];
+        // A sibling link to a position that has since been reused points at a newer entry.
+        at = older != EMPTY && age(older) > age(at) ? older : EMPTY;
+      }
+    }
+    return children;
+  }
+
+  private void put(AccountService.Transaction tx, long now) {
+    if (tx == null || !isUuid(tx.tx_id())) {
+      return;
+    }
+    long hi = half(tx.tx_id(), 0);
+    long lo = half(tx.tx_id(), 19);
+    int slot = find(this.byTx, this.txHi, this.txLo, hi, lo);
+    int at = this.byTx[slot];
+    if (at != EMPTY) {
+      this.values[at] = tx;
+      this.storedAt[at] = now;
+      return;
+    }
+
+    at = this.next;
+    if (this.size == this.capacity) {
+      evict(at);
+      slot = find(this.byTx, this.txHi, this.txLo, hi, lo); // eviction may have moved entries
+    } else {
+      this.size++;
+    }
+    this.next = (at + 1) % this.capacity;
+    this.txHi[at] = hi;
+    this.txLo[at] = lo;
+    this.values[at] = tx;
+    this.storedAt[at] = now;
+    this.byTx[slot] = at;
+
+    this.olderSibling[at] = EMPTY;
+    String parent = tx.parent_tx_id();
+    if (isUuid(parent)) {
+      long parentHi = half(parent, 0);
+      long parentLo = half(parent, 19);
+      this.parentHi[at] = parentHi;
+      this.parentLo[at] = parentLo;
+      int parentSlot = find(this.byParent, this.parentHi, this.parentLo, parentHi, parentLo);
+      this.olderSibling[at] = this.byParent[parentSlot];
+      this.byParent[parentSlot] = at;
+    } else {
+      this.parentHi[at] = 0;
+      this.parentLo[at] = 0;
+    }
+  }
+
+  /** Drops the oldest entry, at {@code at}, before its position is reused. */
+  private void evict(int at) {
+    remove(this.byTx, this.txHi, this.txLo, at);
+    // The oldest entry is the last of its siblings, so the parent only points at it if it is the
+    // only one left.
+    remove(this.byParent, this.parentHi, this.parentLo, at);
+    this.values[at] = null;
+  }
+
+  /** Positions written since {@code at}; the newest entry has age 0. */
+  private int age(int at) {
+    return Math.floorMod(this.next - 1 - at, this.capacity);
+  }
+
+  /** The table slot holding {@code hi/lo}, or the empty slot where it would go. */
+  private int find(int[] table, long[] his, long[] los, long hi, long lo) {
+    int slot = hash(hi, lo) & this.mask;
+    while (true) {
+      int at = table[slot];
+      if (at == EMPTY || (his[at] == hi && los[at] == lo)) {
+        return slot;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+  }
+
+  /** Removes the table entry pointing at {@code at}, if any, shifting later entries back. */
+  private void remove(int[] table, long[] his, long[] los, int at) {
+    int gap = find(table, his, los, his[at], los[at]);
+    if (table[gap] != at) {
+      return;
+    }
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & this.mask;
+      int moved = table[slot];
+      if (moved == EMPTY) {
+        break;
+      }
+      int home = hash(his[moved], los[moved]) & this.mask;
+      if (((slot - home) & this.mask) >= ((slot - gap) & this.mask)) {
+        table[gap] = moved;
+        gap = slot;
+      }
+    }
+    table[gap] = EMPTY;
+  }
+
+  private static int hash(long hi, long lo) {
+    long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** Canonical 8-4-4-4-12 hex form, either case. */
+  static boolean isUuid(String s) {
+    if (s == null || s.length() != 36) {
+      return false;
+    }
+    for (int i = 0; i < 36; i++) {
+      char c = s.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if (Character.digit(c, 16) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The 64 bits spelled by the 16 hex digits from {@code from}, skipping dashes. */
+  private static long half(String uuid, int from) {
+    long bits = 0;
+    for (int i = from, digits = 0; digits < 16; i++) {
+      char c = uuid.charAt(i);
+      if (c != '-') {
+        bits = (bits << 4) | Character.digit(c, 16);
+        digits++;
+      }
+    }
+    return bits;
+  }
+
+  public static final class Builder {
+    private int capacity = 100_000;
+    private Duration maxAge = Duration.ofSeconds(30);
+
+    private Builder() {}
+
+    /** Most transactions kept; the oldest is dropped to make room. */
+    public Builder capacity(int capacity) {
+      if (capacity < 1) {
+        throw new IllegalArgumentException("capacity must be at least 1");
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    /** How long after it was listed a transaction may still be served. */
+    public Builder maxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    public TransactionIndex build() {
+      return new TransactionIndex(this);
+    }
+  }
+}
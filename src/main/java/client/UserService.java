@@ -1,191 +1,75 @@
 package client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.nats.client.Connection;
-import io.nats.client.impl.Headers;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class UserService {
 
-  private final Connection nc;
-  private final String token;
-  private final ObjectMapper objectMapper;
-
-  private final List<String> subjectParams;
+  private final RequestEngine.Endpoint<CreateUserRequest, CreateUserResponse> create;
+  private final RequestEngine.Endpoint<UpdateUserProfileRequest, UpdateUserProfileResponse> update;
+  private final RequestEngine.Endpoint<ListUserRequest, ListUserResponse> list;
+  private final RequestEngine.Endpoint<UploadKYCDocumentsRequest, UploadKYCDocumentsResponse>
+      upload_kyc_documents;
 
   public UserService(Connection nc, String token, List<String> subjectParams) {
-    if (token == null || token.trim().isEmpty()) {
-      throw new IllegalArgumentException("Token cannot be null or empty");
-    }
-    this.nc = nc;
-    this.token = token;
-    this.objectMapper = new ObjectMapper();
-
-    this.subjectParams = subjectParams;
+    this(nc, token, subjectParams, Codecs.shared());
   }
 
-  public CompletableFuture<CreateUserResponse> create(CreateUserRequest req) {
-    String ep = "svc.user.*.create";
-
-    StringBuilder epBuilder = new StringBuilder("svc.user.*.create");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
+  public UserService(Connection nc, String token, List<String> subjectParams, Codecs codecs) {
+    this(ConnectionPool.of(nc), token, subjectParams, codecs);
+  }
 
-    Headers headers = new Headers();
-    headers.add("token", this.token);
+  public UserService(
+      ConnectionPool pool, String token, List<String> subjectParams, Codecs codecs) {
+    this(pool, token, subjectParams, ServiceOptions.of(codecs));
+  }
 
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
+  public UserService(
+      ConnectionPool pool, String token, List<String> subjectParams, ServiceOptions options) {
+    RequestEngine engine =
+        new RequestEngine(pool, token, subjectParams, options, JsonInclude.Include.USE_DEFAULTS);
+
+    this.create =
+        engine
+            .endpoint("svc.user.*.create", CreateUserRequest.class, CreateUserResponse.class)
+            .invalidates("svc.user.*.list");
+    this.update =
+        engine
+            .endpoint(
+                "svc.user.*.update",
+                UpdateUserProfileRequest.class,
+                UpdateUserProfileResponse.class)
+            .invalidates("svc.user.*.list");
+    this.list =
+        engine
+            .endpoint("svc.user.*.list", ListUserRequest.class, ListUserResponse.class)
+            .hedged()
+            .cached(Duration.ofMinutes(1));
+    this.upload_kyc_documents =
+        engine.endpoint(
+            "svc.user.*.upload_kyc_documents",
+            UploadKYCDocumentsRequest.class,
+            UploadKYCDocumentsResponse.class);
+  }
 
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), CreateUserResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+  public CompletableFuture<CreateUserResponse> create(CreateUserRequest req) {
+    return this.create.request(req);
   }
 
   public CompletableFuture<UpdateUserProfileResponse> update(UpdateUserProfileRequest req) {
-    String ep = "svc.user.*.update";
-
-    StringBuilder epBuilder = new StringBuilder("svc.user.*.update");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), UpdateUserProfileResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.update.request(req);
   }
 
   public CompletableFuture<ListUserResponse> list(ListUserRequest req) {
-    String ep = "svc.user.*.list";
-
-    StringBuilder epBuilder = new StringBuilder("svc.user.*.list");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(msg.getData(), ListUserResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.list.request(req);
   }
 
   public CompletableFuture<UploadKYCDocumentsResponse> upload_kyc_documents(
       UploadKYCDocumentsRequest req) {
-    String ep = "svc.user.*.upload_kyc_documents";
-
-    StringBuilder epBuilder = new StringBuilder("svc.user.*.upload_kyc_documents");
-    for (String param : this.subjectParams) {
-      int index = epBuilder.indexOf("*");
-      if (index != -1) {
-        epBuilder.replace(index, index + 1, param);
-      }
-    }
-    ep = epBuilder.toString();
-
-    Headers headers = new Headers();
-    headers.add("token", this.token);
-
-    try {
-      byte[] payload = this.objectMapper.writeValueAsBytes(req);
-
-      return this.nc
-          .request(ep, headers, payload)
-          .thenApply(
-              msg -> {
-                try {
-                  ServiceException.fromMessage(msg)
-                      .ifPresent(
-                          e -> {
-                            throw e;
-                          });
-                  return this.objectMapper.readValue(
-                      msg.getData(), UploadKYCDocumentsResponse.class);
-                } catch (ServiceException e) {
-                  throw e;
-                } catch (Exception e) {
-                  throw new RuntimeException("Serialization Error", e);
-                }
-              });
-    } catch (Exception e) {
-      return CompletableFuture.failedFuture(e);
-    }
+    return this.upload_kyc_documents.request(req);
   }
 
   // Generated Types